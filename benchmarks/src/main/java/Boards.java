@@ -0,0 +1,103 @@
+/**
+ * Makes the boards that the benchmarks are run on.
+ * soup: every cell is alive with a chance of 'density'.
+ * blinker: the board is split into 10x10 squares and each square has the cells from blinker.gol with a chance of 'density'.
+ * still-life: the same, but the squares are filled with still lifes (blocks, beehives and loaves) that never change.
+ * settled-soup: a soup that has been run for SETTLE_GENERATIONS, by when a 1024x1024 soup has turned into still lifes
+ * and oscillators (most of them blinkers, and a few with a period of 3).
+ */
+
+package main.java;
+import java.nio.file.Path;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+public class Boards {
+    public static final long SEED = 20231013L; // the same seed every time, so every run is on the same boards
+    public static final int SETTLE_GENERATIONS = 12000;
+
+    // still lifes, each drawn in a 10x10 square
+    private static final String[] STILL_LIFES = {
+            "..........\n.OO..OO...\n.OO..OO...\n..........\n..........\n.OO...OO..\n.OO...OO..\n..........\n..........\n..........",
+            "..........\n..OO......\n.O..O.....\n..OO......\n..........\n.....OO...\n....O..O..\n.....O.O..\n......O...\n..........",
+    };
+
+    private Boards() {
+    }
+
+    public static BitGrid make(String pattern, int size, double density) {
+        Random random = new Random(SEED);
+        BitGrid grid = new BitGrid(size, size);
+        switch (pattern) {
+            case "soup":
+                for (int i = 0; i < size; i++) {
+                    for (int j = 0; j < size; j++) {
+                        if (random.nextDouble() < density) {
+                            grid.set(i, j, true);
+                        }
+                    }
+                }
+                break;
+            case "settled-soup":
+                PackedEngine engine = new PackedEngine(make("soup", size, density));
+                engine.step(SETTLE_GENERATIONS);
+                grid = engine.getGrid();
+                break;
+            case "blinker":
+                BitGrid blinker = readBlinker();
+                fillSquares(grid, random, density, new BitGrid[] {blinker});
+                break;
+            case "still-life":
+                BitGrid[] stillLifes = new BitGrid[STILL_LIFES.length];
+                for (int k = 0; k < STILL_LIFES.length; k++) {
+                    stillLifes[k] = fromText(STILL_LIFES[k]);
+                }
+                fillSquares(grid, random, density, stillLifes);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown pattern: " + pattern);
+        }
+        return grid;
+    }
+
+    // copies one of 'squares' into each 10x10 square of the grid with a chance of 'density'
+    private static void fillSquares(BitGrid grid, Random random, double density, BitGrid[] squares) {
+        int size = grid.getWidth();
+        for (int top = 0; top + 10 <= size; top += 10) {
+            for (int left = 0; left + 10 <= size; left += 10) {
+                if (random.nextDouble() >= density) {
+                    continue;
+                }
+                BitGrid square = squares[random.nextInt(squares.length)];
+                for (int i = 0; i < 10; i++) {
+                    for (int j = 0; j < 10; j++) {
+                        if (square.get(i, j)) {
+                            grid.set(top + i, left + j, true);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // blinker.gol from the top folder of the project (the benchmarks are run from there)
+    private static BitGrid readBlinker() {
+        try {
+            return GolFormat.read(Path.of("blinker.gol"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static BitGrid fromText(String text) {
+        String[] rows = text.split("\n");
+        BitGrid grid = new BitGrid(10, 10);
+        for (int i = 0; i < rows.length; i++) {
+            for (int j = 0; j < rows[i].length(); j++) {
+                grid.set(i, j, rows[i].charAt(j) == 'O');
+            }
+        }
+        return grid;
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Times one generation with and without CycleDetector looking at it, to see how much hashing each generation adds.
+ * When the board settles down the detector is started again, so that every generation is hashed.
+ */
+
+package main.java;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CycleBenchmark {
+    @Param({"64", "1000"})
+    public int size;
+
+    @Param({"soup", "blinker"})
+    public String pattern;
+
+    private BitGrid grid;
+    private BitGrid next;
+    private CycleDetector cycles;
+    private long generation = 0;
+
+    @Setup
+    public void setUp() {
+        grid = Boards.make(pattern, size, 0.5);
+        next = new BitGrid(size, size);
+        cycles = new CycleDetector(size, size, Rule.CONWAY);
+        cycles.start(grid, 0);
+    }
+
+    @Benchmark
+    public BitGrid step() {
+        grid.step(next);
+        BitGrid old = grid;
+        grid = next;
+        next = old;
+        return grid;
+    }
+
+    @Benchmark
+    public boolean stepAndDetect() {
+        step();
+        generation++;
+        if (cycles.observe(grid, next)) {
+            cycles.start(grid, generation);
+            return true;
+        }
+        return false;
+    }
+}
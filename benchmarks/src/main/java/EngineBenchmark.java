@@ -0,0 +1,94 @@
+/**
+ * Times one generation of each engine on the same boards, so the engines can be compared with each other and with
+ * PackedEngine (which is what KernelBenchmark times on its own). TiledEngine should be much quicker than PackedEngine
+ * on boards that have settled down (settled-soup and blinker) and not much slower on a soup that is still busy.
+ * ParallelEngine uses a thread for each processor (see ParallelBenchmark for how it scales with the amount of threads).
+ * SparseEngine and HashLifeEngine have no edges, so their boards can grow past the size, but they are started on the same cells.
+ */
+
+package main.java;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+    @Param({"1024", "4096"})
+    public int size;
+
+    @Param({"soup", "settled-soup", "blinker"})
+    public String pattern;
+
+    @Param({"packed", "tiled", "parallel", "sparse", "hashlife"})
+    public String engine;
+
+    private Engine stepper;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        BitGrid grid = Boards.make(pattern, size, 0.5);
+        switch (engine) {
+            case "packed":
+                stepper = new PackedEngine(grid);
+                break;
+            case "tiled":
+                stepper = new TiledEngine(grid);
+                break;
+            case "parallel":
+                pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+                stepper = new ParallelEngine(grid, pool);
+                break;
+            case "sparse":
+                stepper = new SparseEngine();
+                copyCells(grid, stepper);
+                break;
+            case "hashlife":
+                stepper = new HashLifeEngine(grid);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    // the engine is returned rather than its population, because counting the population of the whole board would
+    // take longer than a generation of a settled board does with TiledEngine
+    @Benchmark
+    public Engine step() {
+        stepper.step(1);
+        return stepper;
+    }
+
+    private static void copyCells(BitGrid grid, Engine engine) {
+        for (int row = 0; row < grid.getHeight(); row++) {
+            for (int column = 0; column < grid.getWidth(); column++) {
+                if (grid.get(row, column)) {
+                    engine.setCell(row, column, true);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Times reading and writing .gol files, which is what loadFile() and saveFile() do.
+ * The files are written to a temporary folder that is deleted afterwards.
+ */
+
+package main.java;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class FileBenchmark {
+    @Param({"50", "1000", "10000"})
+    public int size;
+
+    @Param({"0.1", "0.5"})
+    public double density;
+
+    @Param({"soup", "blinker", "still-life"})
+    public String pattern;
+
+    private Path folder;
+    private Path readFile; // written once in setUp() and then read by every loadFile() call
+    private Path writeFile; // written over by every saveFile() call
+    private BitGrid grid;
+
+    @Setup
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("gol-benchmark");
+        readFile = folder.resolve("read.gol");
+        writeFile = folder.resolve("write.gol");
+        grid = Boards.make(pattern, size, density);
+        GolFormat.write(readFile, grid);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(readFile);
+        Files.deleteIfExists(writeFile);
+        Files.deleteIfExists(folder);
+    }
+
+    @Benchmark
+    public BitGrid loadFile() throws IOException {
+        return GolFormat.read(readFile);
+    }
+
+    @Benchmark
+    public void saveFile() throws IOException {
+        GolFormat.write(writeFile, grid);
+    }
+}
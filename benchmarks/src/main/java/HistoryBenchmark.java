@@ -0,0 +1,91 @@
+/**
+ * Times recording each generation into a GenerationHistory, and going back to generations in it, on a board that
+ * changes a lot (soup) and one that hardly changes (blinker). seekOneBack() is what rewinding a turn at a time costs,
+ * and seekAnywhere() is jumping to a random generation (which may have to start from a keyframe).
+ */
+
+package main.java;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryBenchmark {
+    private static final int RECORDED = 2000; // the amount of generations in the history that is sought in
+
+    @Param({"64", "1000"})
+    public int size;
+
+    @Param({"soup", "blinker"})
+    public String pattern;
+
+    private BitGrid grid;
+    private BitGrid next;
+    private GenerationHistory recording;
+    private long generation = 0;
+    private GenerationHistory history;
+    private long at = RECORDED;
+    private final SplittableRandom random = new SplittableRandom(1);
+
+    @Setup
+    public void setUp() {
+        grid = Boards.make(pattern, size, 0.5);
+        next = new BitGrid(size, size);
+        recording = new GenerationHistory(size, size);
+        recording.record(grid, 0);
+        history = new GenerationHistory(size, size, GenerationHistory.DEFAULT_KEYFRAME_EVERY, Long.MAX_VALUE);
+        BitGrid g = Boards.make(pattern, size, 0.5);
+        BitGrid n = new BitGrid(size, size);
+        history.record(g, 0);
+        for (int i = 1; i <= RECORDED; i++) {
+            g.step(n);
+            BitGrid old = g;
+            g = n;
+            n = old;
+            history.record(g, i);
+        }
+    }
+
+    @Benchmark
+    public BitGrid step() {
+        grid.step(next);
+        BitGrid old = grid;
+        grid = next;
+        next = old;
+        return grid;
+    }
+
+    @Benchmark
+    public long stepAndRecord() {
+        step();
+        generation++;
+        recording.record(grid, generation);
+        return recording.getBytes();
+    }
+
+    @Benchmark
+    public BitGrid seekOneBack() {
+        at = at == 0 ? RECORDED : at - 1;
+        return history.seek(at);
+    }
+
+    @Benchmark
+    public BitGrid seekAnywhere() {
+        return history.seek(random.nextInt(RECORDED + 1));
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Times one generation of the neighbour counting kernel (what turn() does for every cell), using BitGrid.step().
+ * 'rule' compares Conway's rules (which have their own kernel) with other rules, which use the general one in Rule.
+ * Wide rows use VectorKernel when the JVM can (see RowKernel). To time the scalar code instead:
+ * gradle jmh -PjmhArgs="KernelBenchmark -jvmArgsAppend -Dgol.vector=false"
+ */
+
+package main.java;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KernelBenchmark {
+    @Param({"50", "1000", "10000"})
+    public int size;
+
+    @Param({"0.1", "0.5"})
+    public double density;
+
+    @Param({"soup", "blinker", "still-life"})
+    public String pattern;
+
+    @Param({"B3/S23", "B36/S23", "B3678/S34678"})
+    public String rule;
+
+    private Rule stepRule;
+    private BitGrid grid;
+    private BitGrid next;
+
+    @Setup
+    public void setUp() {
+        grid = Boards.make(pattern, size, density);
+        next = new BitGrid(size, size);
+        stepRule = Rule.parse(rule);
+    }
+
+    // the grids are swapped each time so that a soup keeps changing instead of being worked out from the same cells
+    @Benchmark
+    public BitGrid step() {
+        grid.step(next, stepRule);
+        BitGrid old = grid;
+        grid = next;
+        next = old;
+        return grid;
+    }
+}
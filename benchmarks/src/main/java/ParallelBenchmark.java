@@ -0,0 +1,58 @@
+/**
+ * Times one generation of a soup with ParallelEngine for different amounts of threads, to see how it scales with the
+ * cores. threads=1 is ParallelEngine's overhead over PackedEngine (it still hands the bands to a pool). On a 10000x10000
+ * board each band is hundreds of rows, so the time to hand the bands out should be lost in the time to step them, and
+ * the time should go down nearly in line with the threads until they outnumber the cores (or the memory bandwidth runs out).
+ * To try it with more threads than the defaults:
+ * gradle :benchmarks:jmh -PjmhArgs="ParallelBenchmark -p threads=16,32"
+ */
+
+package main.java;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelBenchmark {
+    @Param({"1024", "10000"})
+    public int size;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private ForkJoinPool pool;
+    private ParallelEngine engine;
+
+    @Setup
+    public void setUp() {
+        pool = new ForkJoinPool(threads);
+        engine = new ParallelEngine(Boards.make("soup", size, 0.5), pool);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public Engine step() {
+        engine.step(1);
+        return engine;
+    }
+}
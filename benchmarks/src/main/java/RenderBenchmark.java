@@ -0,0 +1,77 @@
+/**
+ * Times drawing the grid with gridDraw() (a whole frame), and with TerminalRenderer.drawChanges() going back and forth
+ * between two generations (so only the cells that change are drawn). The output goes to a stream that throws
+ * everything away, so this only measures the work done to make the output, not the terminal.
+ * 10000 isn't one of the sizes because a single draw of that size takes longer than a whole measurement.
+ */
+
+package main.java;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+    @Param({"50", "1000"})
+    public int size;
+
+    @Param({"0.1", "0.5"})
+    public double density;
+
+    @Param({"soup", "blinker", "still-life"})
+    public String pattern;
+
+    private GameOfLife game;
+    private PrintStream realOut;
+    private TerminalRenderer renderer;
+    private Simulation[] generations; // two generations in a row, which drawChanges() goes back and forth between
+    private int frame = 0;
+
+    @Setup
+    public void setUp() {
+        realOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // gridDraw() prints to System.out (this has to be done before the game is made)
+        game = new GameOfLife();
+        game.gridSize = size;
+        game.simulation = new Simulation(Boards.make(pattern, size, density));
+
+        Simulation next = new Simulation(Boards.make(pattern, size, density));
+        next.step();
+        generations = new Simulation[] {game.simulation, next};
+        renderer = new TerminalRenderer(OutputStream.nullOutputStream(), game.ON, game.OFF);
+        renderer.drawChanges(generations[0]); // the first call draws everything, so it isn't timed
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(realOut);
+    }
+
+    @Benchmark
+    public void gridDraw() {
+        game.gridDraw(false); // false so that it doesn't wait for the keyboard afterwards
+    }
+
+    @Benchmark
+    public void drawChanges() {
+        frame ^= 1;
+        renderer.drawChanges(generations[frame]);
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Times how long SoupSearch takes to run a soup from start to finish (until it settles down or hits the most generations).
+ * Each call runs the next soup, so the time is an average over lots of different soups.
+ */
+
+package main.java;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SoupBenchmark {
+    @Param({"16", "64"})
+    public int size;
+
+    @Param({"DEAD", "TORUS"})
+    public String topology;
+
+    private SoupSearch search;
+    private long soup = 0;
+
+    @Setup
+    public void setUp() {
+        search = new SoupSearch(size, SoupSearch.DEFAULT_DENSITY, Rule.CONWAY, Topology.valueOf(topology), SoupSearch.DEFAULT_MAX_GENERATIONS, Boards.SEED);
+    }
+
+    @Benchmark
+    public SoupSearch.Result runSoup() {
+        return search.run(soup++);
+    }
+}
@@ -0,0 +1,419 @@
+/**
+ * A grid of cells that is stored with one bit per cell instead of one boolean per cell.
+ * Each row is made up of 'long' words, so every word holds 64 cells. Bit (j % 64) of word (j / 64) in a row is the
+ * cell in column j. Any bits past the width of the grid (in the last word of each row) are always kept at 0.
+ *
+ * step() works out the next generation 64 cells at a time. Instead of counting the neighbours of each cell one by one,
+ * the neighbours of a whole word are added together with bitwise operations (a bit-sliced adder), so the count for
+ * every cell in the word ends up spread over a few 'sum' words.
+ * Cells past the edges of the grid count as dead, the same as in the original turn() loop, unless the step methods
+ * are given a different Topology. The step methods use Conway's rules unless they are given a different Rule.
+ */
+
+package main.java;
+import java.util.Arrays;
+
+public class BitGrid {
+    public static final int WORD_SIZE = 64; // the amount of cells held in each word
+    private static final RowKernel KERNEL = RowKernel.load(); // does the middle words of wide rows several at a time, or null if this JVM can't (see RowKernel)
+
+    private final int width; // the amount of columns
+    private final int height; // the amount of rows
+    private final int wordsPerRow; // the amount of words needed to hold one row
+    private final long lastWordMask; // the bits of the last word in a row that are actually on the grid
+    private final long[] words; // all the cells, row after row
+    private final long[] emptyRow; // a row of dead cells, used for the rows past the top and bottom edges
+    // the KLEIN halo rows (the bottom row and the top row reversed), filled in again by each step that needs them. There
+    // is one for each edge because a step of the top band and a step of the bottom band can run at the same time on
+    // different threads (see ParallelEngine), but two steps of the same edge of one grid can't
+    private final long[] reversedBottom;
+    private final long[] reversedTop;
+
+    public BitGrid(int width, int height) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Grid must be at least 1x1 but was " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        wordsPerRow = (width + WORD_SIZE - 1) / WORD_SIZE;
+        int tail = width % WORD_SIZE;
+        lastWordMask = tail == 0 ? -1L : (1L << tail) - 1; // if the width is a multiple of 64, the whole last word is used
+        long size = (long) wordsPerRow * height;
+        if (size > Integer.MAX_VALUE - 8) { // java arrays can't be bigger than this
+            throw new IllegalArgumentException("Grid of " + width + "x" + height + " is too large");
+        }
+        words = new long[(int) size];
+        emptyRow = new long[wordsPerRow];
+        reversedBottom = new long[wordsPerRow];
+        reversedTop = new long[wordsPerRow];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    // the backing array. This is returned directly (not copied) so that the file code can read and write whole words at a time
+    public long[] getWords() {
+        return words;
+    }
+
+    public boolean get(int row, int column) {
+        return (words[row * wordsPerRow + (column >>> 6)] & (1L << column)) != 0; // shifting a long only uses the bottom 6 bits, so this is column % 64
+    }
+
+    public void set(int row, int column, boolean alive) {
+        int index = row * wordsPerRow + (column >>> 6);
+        if (alive) {
+            words[index] |= 1L << column;
+        } else {
+            words[index] &= ~(1L << column);
+        }
+    }
+
+    public void flip(int row, int column) {
+        words[row * wordsPerRow + (column >>> 6)] ^= 1L << column;
+    }
+
+    public void clear() {
+        Arrays.fill(words, 0L);
+    }
+
+    public void copyFrom(BitGrid other) {
+        checkSameSize(other);
+        System.arraycopy(other.words, 0, words, 0, words.length);
+    }
+
+    public long population() {
+        long count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // the amount of cells that are different in 'other' (which has to be the same size)
+    public long countDifferences(BitGrid other) {
+        long[] otherWords = other.words;
+        long count = 0;
+        for (int i = 0; i < words.length; i++) {
+            count += Long.bitCount(words[i] ^ otherWords[i]);
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* Works out the next generation of this grid and puts it in 'next'. This grid is not changed.
+     * Any live cell with fewer than two live neighbours dies, as if by underpopulation.
+     * Any live cell with two or three live neighbours lives on to the next generation.
+     * Any live cell with more than three live neighbours dies, as if by overpopulation.
+     * Any dead cell with exactly three live neighbours becomes a live cell, as if by reproduction.
+     */
+    public void step(BitGrid next) {
+        stepRows(next, Rule.CONWAY, 0, height);
+    }
+
+    // works out the next generation with 'rule' instead of Conway's rules. Only whether each cell is alive is worked
+    // out here, so for Generations rules the dying states are left to GenerationsEngine
+    public void step(BitGrid next, Rule rule) {
+        stepRows(next, rule, 0, height);
+    }
+
+    public void step(BitGrid next, Rule rule, Topology topology) {
+        stepRegion(next, rule, topology, 0, height, 0, wordsPerRow);
+    }
+
+    // works out the next generation for rows 'fromRow' (inclusive) to 'toRow' (exclusive) only
+    public void stepRows(BitGrid next, int fromRow, int toRow) {
+        stepRegion(next, Rule.CONWAY, fromRow, toRow, 0, wordsPerRow);
+    }
+
+    public void stepRows(BitGrid next, Rule rule, int fromRow, int toRow) {
+        stepRegion(next, rule, fromRow, toRow, 0, wordsPerRow);
+    }
+
+    public void stepRows(BitGrid next, Rule rule, Topology topology, int fromRow, int toRow) {
+        stepRegion(next, rule, topology, fromRow, toRow, 0, wordsPerRow);
+    }
+
+    // works out the next generation for the words 'fromWord' (inclusive) to 'toWord' (exclusive) of rows 'fromRow' to 'toRow' only
+    public void stepRegion(BitGrid next, int fromRow, int toRow, int fromWord, int toWord) {
+        stepRegion(next, Rule.CONWAY, fromRow, toRow, fromWord, toWord);
+    }
+
+    public void stepRegion(BitGrid next, Rule rule, int fromRow, int toRow, int fromWord, int toWord) {
+        stepRegion(next, rule, Topology.DEAD, fromRow, toRow, fromWord, toWord);
+    }
+
+    public void stepRegion(BitGrid next, Rule rule, Topology topology, int fromRow, int toRow, int fromWord, int toWord) {
+        checkSameSize(next);
+        if (next == this) {
+            throw new IllegalArgumentException("The next generation can't be written into the grid it is worked out from");
+        }
+        if (wordsPerRow == 1 && toWord > fromWord) {
+            stepNarrow(next, rule, topology, fromRow, toRow);
+            return;
+        }
+        long[] out = next.words;
+        boolean conway = rule.isConway(); // this is the same for every word, so the branch on it costs almost nothing
+        int last = wordsPerRow - 1;
+        int end = Math.min(toWord, last); // the last word of a row is done separately because it has nothing to its right
+        int tail = width % WORD_SIZE; // the bit just past the right edge in the last word (0 if the last word is full)
+
+        // the row above the top row and the row below the bottom row (the halo rows). DEAD edges use emptyRow
+        long[] aboveTop = emptyRow, belowBottom = emptyRow;
+        int aboveTopStart = 0, belowBottomStart = 0;
+        if (topology == Topology.TORUS) {
+            aboveTop = words;
+            aboveTopStart = (height - 1) * wordsPerRow;
+            belowBottom = words;
+        } else if (topology == Topology.KLEIN) {
+            // these are only filled in if the region has the top or bottom row in it, so most calls don't copy anything
+            aboveTop = fromRow == 0 ? reverseRow(height - 1, reversedBottom) : emptyRow;
+            belowBottom = toRow == height ? reverseRow(0, reversedTop) : emptyRow;
+        } else if (topology == Topology.MIRROR) {
+            aboveTop = words;
+            belowBottom = words;
+            belowBottomStart = (height - 1) * wordsPerRow;
+        }
+
+        for (int row = fromRow; row < toRow; row++) {
+            int mid = row * wordsPerRow;
+            long[] upWords = row > 0 ? words : aboveTop;
+            int up = row > 0 ? mid - wordsPerRow : aboveTopStart;
+            long[] downWords = row < height - 1 ? words : belowBottom;
+            int down = row < height - 1 ? mid + wordsPerRow : belowBottomStart;
+
+            // 'prev' is the word to the left, 'cur' is the word being worked out and 'nxt' is the word to the right
+            long upPrev, midPrev, downPrev;
+            if (fromWord > 0) {
+                upPrev = upWords[up + fromWord - 1];
+                midPrev = words[mid + fromWord - 1];
+                downPrev = downWords[down + fromWord - 1];
+            } else { // only the top bit is used, which is the cell past the left edge
+                upPrev = pastLeftEdge(topology, upWords, up);
+                midPrev = pastLeftEdge(topology, words, mid);
+                downPrev = pastLeftEdge(topology, downWords, down);
+            }
+            long upCur = upWords[up + fromWord], midCur = words[mid + fromWord], downCur = downWords[down + fromWord];
+            // the kernel does the words it can (it needs a word on each side, so not the first), and the loop skips them
+            int kernelFrom = Math.max(fromWord, 1), kernelTo = kernelFrom;
+            if (KERNEL != null && end - kernelFrom >= KERNEL.lanes()) {
+                kernelTo += KERNEL.stepWords(upWords, up, words, mid, downWords, down, out, kernelFrom, end, rule);
+            }
+            for (int w = fromWord; w < end; w++) {
+                if (w == kernelFrom && kernelTo > kernelFrom) {
+                    w = kernelTo;
+                    upPrev = upWords[up + w - 1]; midPrev = words[mid + w - 1]; downPrev = downWords[down + w - 1];
+                    upCur = upWords[up + w]; midCur = words[mid + w]; downCur = downWords[down + w];
+                    if (w == end) {
+                        break;
+                    }
+                }
+                long upNxt = upWords[up + w + 1], midNxt = words[mid + w + 1], downNxt = downWords[down + w + 1];
+                out[mid + w] = conway ? nextWord(upPrev, upCur, upNxt, midPrev, midCur, midNxt, downPrev, downCur, downNxt)
+                        : rule.nextWord(upPrev, upCur, upNxt, midPrev, midCur, midNxt, downPrev, downCur, downNxt);
+                upPrev = upCur; midPrev = midCur; downPrev = downCur;
+                upCur = upNxt; midCur = midNxt; downCur = downNxt;
+            }
+            if (toWord > last) {
+                // the cell past the right edge goes in the bit just past the edge. If the last word is full, that bit is
+                // bit 0 of the word after it instead
+                long upPast = pastRightEdge(topology, upWords, up), midPast = pastRightEdge(topology, words, mid), downPast = pastRightEdge(topology, downWords, down);
+                long upNxt = 0, midNxt = 0, downNxt = 0;
+                if (tail == 0) {
+                    upNxt = upPast;
+                    midNxt = midPast;
+                    downNxt = downPast;
+                } else {
+                    upCur |= upPast << tail;
+                    midCur |= midPast << tail;
+                    downCur |= downPast << tail;
+                }
+                // the bits past the edge are worked out too, but they are thrown away by lastWordMask
+                out[mid + last] = (conway ? nextWord(upPrev, upCur, upNxt, midPrev, midCur, midNxt, downPrev, downCur, downNxt)
+                        : rule.nextWord(upPrev, upCur, upNxt, midPrev, midCur, midNxt, downPrev, downCur, downNxt)) & lastWordMask;
+            }
+        }
+    }
+
+    /* The same as stepRegion() for a grid that is only one word wide (like the 64x64 boards in SoupSearch). The rows
+     * above, at and below the row being worked out are kept in variables and moved down one row at a time, so each row
+     * is only read (and has the cells past its edges added) once, instead of three times.
+     */
+    private void stepNarrow(BitGrid next, Rule rule, Topology topology, int fromRow, int toRow) {
+        long[] out = next.words;
+        boolean conway = rule.isConway();
+        int tail = width % WORD_SIZE;
+        // when the word is full the cell past the right edge goes in the next word, otherwise in the spare bit at 'tail'
+        long upCur = fromRow > 0 ? words[fromRow - 1] : pastTopEdge(topology);
+        long upPrev = pastLeftEdge(topology, upCur), upPast = pastRightEdge(topology, upCur);
+        long upNxt = tail == 0 ? upPast : 0;
+        upCur |= tail == 0 ? 0 : upPast << tail;
+        long midCur = words[fromRow];
+        long midPrev = pastLeftEdge(topology, midCur), midPast = pastRightEdge(topology, midCur);
+        long midNxt = tail == 0 ? midPast : 0;
+        midCur |= tail == 0 ? 0 : midPast << tail;
+        for (int row = fromRow; row < toRow; row++) {
+            long downCur = row < height - 1 ? words[row + 1] : pastBottomEdge(topology);
+            long downPrev = pastLeftEdge(topology, downCur), downPast = pastRightEdge(topology, downCur);
+            long downNxt = tail == 0 ? downPast : 0;
+            downCur |= tail == 0 ? 0 : downPast << tail;
+            out[row] = (conway ? nextWord(upPrev, upCur, upNxt, midPrev, midCur, midNxt, downPrev, downCur, downNxt)
+                    : rule.nextWord(upPrev, upCur, upNxt, midPrev, midCur, midNxt, downPrev, downCur, downNxt)) & lastWordMask;
+            upPrev = midPrev; upCur = midCur; upNxt = midNxt;
+            midPrev = downPrev; midCur = downCur; midNxt = downNxt;
+        }
+    }
+
+    // the row above the top row, for a grid that is one word wide
+    private long pastTopEdge(Topology topology) {
+        if (topology == Topology.TORUS) {
+            return words[height - 1];
+        } else if (topology == Topology.KLEIN) {
+            return Long.reverse(words[height - 1]) >>> (WORD_SIZE - width);
+        } else if (topology == Topology.MIRROR) {
+            return words[0];
+        }
+        return 0;
+    }
+
+    // the row below the bottom row, for a grid that is one word wide
+    private long pastBottomEdge(Topology topology) {
+        if (topology == Topology.TORUS) {
+            return words[0];
+        } else if (topology == Topology.KLEIN) {
+            return Long.reverse(words[0]) >>> (WORD_SIZE - width);
+        } else if (topology == Topology.MIRROR) {
+            return words[height - 1];
+        }
+        return 0;
+    }
+
+    // the same as the next two methods, for a row that is one word
+    private long pastLeftEdge(Topology topology, long row) {
+        if (topology == Topology.TORUS || topology == Topology.KLEIN) {
+            return row << (WORD_SIZE - width);
+        } else if (topology == Topology.MIRROR) {
+            return row << (WORD_SIZE - 1);
+        }
+        return 0;
+    }
+
+    private long pastRightEdge(Topology topology, long row) {
+        if (topology == Topology.TORUS || topology == Topology.KLEIN) {
+            return row & 1;
+        } else if (topology == Topology.MIRROR) {
+            return (row >>> (width - 1)) & 1;
+        }
+        return 0;
+    }
+
+    // a word with the cell just past the left edge of the row that starts at 'start' in its top bit
+    private long pastLeftEdge(Topology topology, long[] row, int start) {
+        if (topology == Topology.TORUS || topology == Topology.KLEIN) { // the last cell of the row
+            return row[start + wordsPerRow - 1] << (WORD_SIZE - 1 - (width - 1) % WORD_SIZE);
+        } else if (topology == Topology.MIRROR) { // the first cell of the row
+            return row[start] << (WORD_SIZE - 1);
+        }
+        return 0;
+    }
+
+    // the cell just past the right edge of the row that starts at 'start', as 0 or 1
+    private long pastRightEdge(Topology topology, long[] row, int start) {
+        if (topology == Topology.TORUS || topology == Topology.KLEIN) { // the first cell of the row
+            return row[start] & 1;
+        } else if (topology == Topology.MIRROR) { // the last cell of the row
+            return (row[start + wordsPerRow - 1] >>> ((width - 1) % WORD_SIZE)) & 1;
+        }
+        return 0;
+    }
+
+    // copies a row into 'reversed' with the cells in the opposite order (the first column becomes the last), and returns it
+    private long[] reverseRow(int row, long[] reversed) {
+        int start = row * wordsPerRow;
+        int padding = wordsPerRow * WORD_SIZE - width; // the bits past the width in the last word
+        for (int k = 0; k < wordsPerRow; k++) {
+            // reversing the order of the words and the bits in each word reverses the whole row, but the padding ends up
+            // at the start, so everything is shifted down by 'padding' bits
+            long word = Long.reverse(words[start + wordsPerRow - 1 - k]) >>> padding;
+            if (padding > 0 && k + 1 < wordsPerRow) {
+                word |= Long.reverse(words[start + wordsPerRow - 2 - k]) << (WORD_SIZE - padding);
+            }
+            reversed[k] = word;
+        }
+        return reversed;
+    }
+
+    // works out the next state of the 64 cells in 'midCur' from the words around it
+    static long nextWord(long upPrev, long upCur, long upNxt, long midPrev, long midCur, long midNxt,
+                         long downPrev, long downCur, long downNxt) {
+        // the neighbours to the west are the words shifted up by one bit (with the top bit of the word before carried in)
+        // and the neighbours to the east are the words shifted down by one bit
+        long upWest = (upCur << 1) | (upPrev >>> 63);
+        long upEast = (upCur >>> 1) | (upNxt << 63);
+        long midWest = (midCur << 1) | (midPrev >>> 63);
+        long midEast = (midCur >>> 1) | (midNxt << 63);
+        long downWest = (downCur << 1) | (downPrev >>> 63);
+        long downEast = (downCur >>> 1) | (downNxt << 63);
+
+        // each row of neighbours is added up into a two bit number (bit 1 and bit 0)
+        long up0 = upWest ^ upCur ^ upEast;
+        long up1 = (upWest & upCur) | (upEast & (upWest ^ upCur));
+        long mid0 = midWest ^ midEast; // the middle row doesn't count the cell itself
+        long mid1 = midWest & midEast;
+        long down0 = downWest ^ downCur ^ downEast;
+        long down1 = (downWest & downCur) | (downEast & (downWest ^ downCur));
+
+        // then the three rows are added together. Only bits 0 to 2 are kept, so 8 neighbours looks the same as 0 (both mean the cell is dead)
+        long sum0 = up0 ^ mid0 ^ down0;
+        long carry0 = (up0 & mid0) | (down0 & (up0 ^ mid0));
+        long ones1 = up1 ^ mid1 ^ down1;
+        long carry1 = (up1 & mid1) | (down1 & (up1 ^ mid1));
+        long sum1 = ones1 ^ carry0;
+        long sum2 = carry1 ^ (ones1 & carry0);
+
+        // a cell is alive next turn if it has 3 neighbours, or if it has 2 neighbours and is alive now
+        return sum1 & ~sum2 & (sum0 | midCur);
+    }
+
+    // what works out the middle of wide rows: "vector (n words at a time)" if the Vector API is being used, otherwise "scalar"
+    public static String kernelName() {
+        return KERNEL == null ? "scalar" : KERNEL.toString();
+    }
+
+    private void checkSameSize(BitGrid other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("Grids are different sizes: " + width + "x" + height + " and " + other.width + "x" + other.height);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof BitGrid)) {
+            return false;
+        }
+        BitGrid other = (BitGrid) o;
+        return other.width == width && other.height == height && Arrays.equals(other.words, words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words) * 31 + width * 17 + height;
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Loads and saves boards in any of the formats, working out which format to use from the file.
+ * .gol  - the original text format (see GolFormat)
+ * .rle  - the run length encoded format used by other Life programs (see RleFormat)
+ * .golb - binary snapshots (see SnapshotFormat)
+ * If a file has a different extension, the first bytes are looked at instead: snapshots start with "GOLB",
+ * .gol files start with a number and RLE files start with '#' or 'x'.
+ * RLE files and snapshots say which rule they use. .gol files don't, so they are loaded with the rule they are given.
+ */
+
+package main.java;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+public class BoardFile {
+    public enum Format { GOL, RLE, SNAPSHOT }
+
+    private BoardFile() {
+    }
+
+    // works out the format from the extension, or from the start of the file if the extension isn't one of the known ones
+    public static Format detect(Path file) throws IOException {
+        Format format = fromExtension(file);
+        if (format != null) {
+            return format;
+        }
+        byte[] start;
+        try (InputStream in = Files.newInputStream(file)) {
+            start = in.readNBytes(64);
+        }
+        if (SnapshotFormat.hasMagic(start)) {
+            return Format.SNAPSHOT;
+        }
+        for (byte b : start) {
+            if (b >= '0' && b <= '9') {
+                return Format.GOL;
+            } else if (b == '#' || b == 'x') {
+                return Format.RLE;
+            } else if (!Character.isWhitespace(b)) {
+                break;
+            }
+        }
+        throw new IOException("The format of " + file + " isn't one that can be loaded");
+    }
+
+    // the format for the extension of the file, or null if it's not one of the known extensions
+    public static Format fromExtension(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gol")) {
+            return Format.GOL;
+        } else if (name.endsWith(".rle")) {
+            return Format.RLE;
+        } else if (name.endsWith(".golb")) {
+            return Format.SNAPSHOT;
+        }
+        return null;
+    }
+
+    public static Simulation load(Path file) throws IOException {
+        return load(file, Rule.CONWAY);
+    }
+
+    // 'golRule' is the rule used if the file is a .gol file
+    public static Simulation load(Path file, Rule golRule) throws IOException {
+        switch (detect(file)) {
+            case RLE:
+                return RleFormat.load(file);
+            case SNAPSHOT:
+                return SnapshotFormat.read(file);
+            default:
+                return GolFormat.load(file, golRule);
+        }
+    }
+
+    // the width and height of the board in the file, read from just the start of it (so nothing as big as the board is made)
+    public static int[] readSize(Path file) throws IOException {
+        switch (detect(file)) {
+            case RLE:
+                return RleFormat.readSize(file);
+            case SNAPSHOT:
+                return SnapshotFormat.readSize(file);
+            default:
+                return GolFormat.readSize(file);
+        }
+    }
+
+    // saves in the format that matches the extension. Files with other extensions are saved as snapshots
+    public static void save(Path file, Simulation simulation) throws IOException {
+        Format format = fromExtension(file);
+        if (format == Format.GOL) {
+            GolFormat.write(file, simulation);
+        } else if (format == Format.RLE) {
+            RleFormat.write(file, simulation);
+        } else {
+            SnapshotFormat.write(file, simulation);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * A hash map from cell positions to small numbers, made only out of primitive arrays (no Long or Point objects).
+ * A position is packed into one long: the row is in the top 32 bits and the column is in the bottom 32 bits (see key()).
+ * Positions are found with linear probing, and the arrays are doubled when the map gets half full (and made smaller
+ * again by clear() when the map was mostly empty).
+ *
+ * SparseEngine uses one of these as the set of live cells (every value is 1) and another one to count neighbours.
+ */
+
+package main.java;
+import java.util.Arrays;
+
+public class CellMap {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys; // the packed positions
+    private byte[] values; // the value for each position. 0 means that slot is not in use
+    private int size = 0; // the amount of slots in use
+    private int mask; // capacity - 1, used to turn a hash into a slot
+
+    public CellMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public CellMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        values = new byte[capacity];
+        mask = capacity - 1;
+    }
+
+    public static long key(int row, int column) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    public static int row(long key) {
+        return (int) (key >> 32);
+    }
+
+    public static int column(long key) {
+        return (int) key;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // the amount of slots. Slots are looked at with isUsed(), keyAt() and valueAt() so that the map can be looped through without an iterator
+    public int capacity() {
+        return keys.length;
+    }
+
+    public boolean isUsed(int slot) {
+        return values[slot] != 0;
+    }
+
+    public long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    public int valueAt(int slot) {
+        return values[slot];
+    }
+
+    // the value for 'key', or 0 if it isn't in the map
+    public int get(long key) {
+        for (int slot = slot(key); values[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return 0;
+    }
+
+    public boolean contains(long key) {
+        return get(key) != 0;
+    }
+
+    // sets the value for 'key'. Values have to fit in a byte and can't be 0 (use remove() instead)
+    public void put(long key, int value) {
+        int slot = find(key);
+        if (values[slot] == 0) {
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = (byte) value;
+        growIfFull();
+    }
+
+    // adds 'amount' to the value for 'key' (starting from 0 if it isn't in the map yet)
+    public void add(long key, int amount) {
+        int slot = find(key);
+        if (values[slot] == 0) {
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] += amount;
+        growIfFull();
+    }
+
+    public void remove(long key) {
+        int slot = find(key);
+        if (values[slot] == 0) {
+            return; // it wasn't in the map
+        }
+        values[slot] = 0;
+        size--;
+        // the keys after it in the same run are moved back, so that they can still be found without gaps in the way
+        for (int next = (slot + 1) & mask; values[next] != 0; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            // the key at 'next' can move to 'slot' if 'slot' is between its home slot and where it is now
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                values[next] = 0;
+                slot = next;
+            }
+        }
+    }
+
+    /* Empties the map. The arrays are kept for next time, unless less than an eighth of them was in use: then smaller
+     * ones are made, so that after the population has dropped a long way, clearing the map and going through its slots
+     * costs about the same as the cells in it, not the most there have ever been.
+     */
+    public void clear() {
+        int capacity = MIN_CAPACITY;
+        while (capacity < size * 4) { // room for it to double before it has to grow again
+            capacity <<= 1;
+        }
+        if (size < keys.length / 8 && capacity < keys.length) {
+            keys = new long[capacity];
+            values = new byte[capacity];
+            mask = capacity - 1;
+        } else if (size > 0) {
+            Arrays.fill(values, (byte) 0);
+        }
+        size = 0;
+    }
+
+    // the slot that 'key' is in, or the empty slot where it would go
+    private int find(long key) {
+        int slot = slot(key);
+        while (values[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int slot(long key) {
+        key ^= key >>> 33; // mixes the row and the column together (the same mixing as MurmurHash3)
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    private void growIfFull() {
+        if (size * 2 <= keys.length) {
+            return;
+        }
+        long[] oldKeys = keys;
+        byte[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new byte[oldValues.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != 0) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
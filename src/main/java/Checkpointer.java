@@ -0,0 +1,245 @@
+/**
+ * Saves checkpoints of a long run every so many generations and/or every so many milliseconds, so that the run can
+ * carry on from the latest checkpoint if it is stopped.
+ *
+ * The stepping loop never waits for the disk. When a checkpoint is due, the cells are copied into a spare grid
+ * (which takes about as long as one generation) and the copy is handed to a background thread that writes it as a
+ * snapshot (see SnapshotFormat). If the background thread is still busy with an older checkpoint, the newest copy
+ * replaces any copy that is still waiting, so checkpoints can be skipped but the loop is never held up. The grid of a
+ * copy that is thrown away goes back to the spare grids, the same as one that has been written.
+ *
+ * Each checkpoint is written to a temporary file first and only renamed to checkpoint-<generation>.golb when it is
+ * complete and flushed to the disk. The folder is flushed too after the rename, before the older checkpoints are
+ * deleted, and the last few checkpoints are kept. Snapshots have a checksum, so resume() skips any file that is
+ * damaged and uses the one before it instead. That way there is always a file that can be loaded.
+ *
+ * Example:
+ * Simulation simulation = Checkpointer.resume(folder); // null if there aren't any checkpoints yet
+ * try (Checkpointer checkpointer = new Checkpointer(folder, 100000, 60000)) {
+ *     checkpointer.run(simulation, 1000000000);
+ * }
+ */
+
+package main.java;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class Checkpointer implements AutoCloseable {
+    public static final String PREFIX = "checkpoint-";
+    public static final String EXTENSION = ".golb";
+    public static final int DEFAULT_KEEP = 3; // how many checkpoints are kept (older ones are deleted)
+
+    private final Path folder; // where the checkpoints are written
+    private final long everyGenerations; // a checkpoint is taken after this many generations (0 means never)
+    private final long everyNanos; // or after this much time (0 means never)
+    private int keep = DEFAULT_KEEP;
+    private final ThreadPoolExecutor writer; // the background thread. It only has room for one waiting checkpoint
+    private final BlockingQueue<BitGrid> spareGrids = new ArrayBlockingQueue<>(2); // grids that have been written and can be reused for copies
+    private final AtomicReference<IOException> lastError = new AtomicReference<>(); // the last thing that went wrong on the background thread
+    private long lastGeneration; // the generation of the last checkpoint
+    private long lastTime; // when the last checkpoint was taken (System.nanoTime())
+
+    public Checkpointer(Path folder, long everyGenerations, long everyMillis) throws IOException {
+        this.folder = folder;
+        this.everyGenerations = everyGenerations;
+        this.everyNanos = TimeUnit.MILLISECONDS.toNanos(everyMillis);
+        Files.createDirectories(folder);
+        // one thread and a queue of one: if a checkpoint is waiting when another one arrives, the waiting one is thrown away
+        writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1), runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        }, discardOldest());
+        lastTime = System.nanoTime();
+    }
+
+    // the same as ThreadPoolExecutor.DiscardOldestPolicy, but the grid of the checkpoint that is thrown away is kept for another copy
+    private RejectedExecutionHandler discardOldest() {
+        return (runnable, executor) -> {
+            if (executor.isShutdown()) {
+                return;
+            }
+            Runnable dropped = executor.getQueue().poll();
+            if (dropped instanceof Write) {
+                spareGrids.offer(((Write) dropped).grid);
+            }
+            executor.execute(runnable);
+        };
+    }
+
+    public void setKeep(int keep) {
+        if (keep < 1) {
+            throw new IllegalArgumentException("At least one checkpoint has to be kept");
+        }
+        this.keep = keep;
+    }
+
+    // the last error from writing a checkpoint in the background, or null if there hasn't been one
+    public IOException getLastError() {
+        return lastError.get();
+    }
+
+    // steps the simulation 'generations' generations, taking checkpoints along the way and one at the end
+    public void run(Simulation simulation, long generations) {
+        lastGeneration = simulation.getGeneration();
+        long chunk = everyGenerations > 0 ? everyGenerations : 1; // how many generations are stepped between checks
+        for (long done = 0; done < generations; ) {
+            long steps = Math.min(chunk, generations - done);
+            simulation.step(steps);
+            done += steps;
+            checkpointIfDue(simulation);
+        }
+        if (simulation.getGeneration() != lastGeneration) { // the last generation isn't a multiple of everyGenerations (or the time wasn't up)
+            checkpoint(simulation);
+        }
+    }
+
+    // takes a checkpoint if enough generations or enough time have gone by since the last one. Returns whether it did
+    public boolean checkpointIfDue(Simulation simulation) {
+        boolean due = (everyGenerations > 0 && simulation.getGeneration() - lastGeneration >= everyGenerations)
+                || (everyNanos > 0 && System.nanoTime() - lastTime >= everyNanos);
+        if (due) {
+            checkpoint(simulation);
+        }
+        return due;
+    }
+
+    // copies the cells now and writes them in the background
+    public void checkpoint(Simulation simulation) {
+        BitGrid copy = spareGrids.poll();
+        if (copy == null || copy.getWidth() != simulation.getWidth() || copy.getHeight() != simulation.getHeight()) {
+            copy = new BitGrid(simulation.getWidth(), simulation.getHeight());
+        }
+        simulation.snapshotInto(copy);
+        Rule rule = simulation.getRule();
+        Topology topology = simulation.getTopology();
+        Engine engine = simulation.getEngine();
+        // the dying states of a Generations board aren't in the grid, so they are copied too (checkpoints are rare enough that this isn't reused)
+        byte[] states = engine instanceof GenerationsEngine ? ((GenerationsEngine) engine).getStates().clone() : null;
+        long generation = simulation.getGeneration();
+        lastGeneration = generation;
+        lastTime = System.nanoTime();
+        writer.execute(new Write(copy, generation, rule, topology, states));
+    }
+
+    // a checkpoint waiting to be written. It is a class (not a lambda) so that discardOldest() can get the grid back out of it
+    private final class Write implements Runnable {
+        private final BitGrid grid;
+        private final long generation;
+        private final Rule rule;
+        private final Topology topology;
+        private final byte[] states;
+
+        Write(BitGrid grid, long generation, Rule rule, Topology topology, byte[] states) {
+            this.grid = grid;
+            this.generation = generation;
+            this.rule = rule;
+            this.topology = topology;
+            this.states = states;
+        }
+
+        @Override
+        public void run() {
+            write(grid, generation, rule, topology, states);
+        }
+    }
+
+    // runs on the background thread
+    private void write(BitGrid grid, long generation, Rule rule, Topology topology, byte[] states) {
+        Path file = folder.resolve(String.format("%s%020d%s", PREFIX, generation, EXTENSION)); // the zeros make the names sort in order of generation
+        Path temporary = folder.resolve(file.getFileName() + ".tmp");
+        try {
+            SnapshotFormat.write(temporary, grid, generation, rule, topology, states, true);
+            // the file is flushed to the disk before it is renamed. Otherwise after a power cut the rename could be
+            // there without the data, and the newest checkpoint (or all of them, once the old ones are deleted) would be empty
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING); // the checkpoint only appears once it is complete
+            forceFolder(); // so the rename is on the disk before the checkpoints it replaces are deleted
+            deleteOld();
+        } catch (IOException e) {
+            lastError.set(e);
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+                // the temporary file is left behind. It is never loaded because it doesn't end in .golb
+            }
+        } finally {
+            spareGrids.offer(grid); // the grid can be reused for another copy
+        }
+    }
+
+    // flushes the folder's list of files to the disk, which is where a rename is kept
+    private void forceFolder() throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(folder, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return; // some systems (e.g. Windows) can't open a folder, and they don't need it flushed for the rename to last
+        }
+        try (FileChannel open = channel) {
+            open.force(true);
+        }
+    }
+
+    // deletes all but the newest 'keep' checkpoints
+    private void deleteOld() throws IOException {
+        List<Path> checkpoints = list(folder);
+        for (int i = keep; i < checkpoints.size(); i++) {
+            Files.deleteIfExists(checkpoints.get(i));
+        }
+    }
+
+    // the checkpoints in the folder, newest first
+    public static List<Path> list(Path folder) throws IOException {
+        List<Path> checkpoints = new ArrayList<>();
+        if (!Files.isDirectory(folder)) {
+            return checkpoints;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, PREFIX + "*" + EXTENSION)) {
+            for (Path file : files) {
+                checkpoints.add(file);
+            }
+        }
+        checkpoints.sort(Collections.reverseOrder());
+        return checkpoints;
+    }
+
+    // loads the newest checkpoint that isn't damaged, or returns null if there aren't any that can be loaded
+    public static Simulation resume(Path folder) throws IOException {
+        for (Path file : list(folder)) {
+            try {
+                return SnapshotFormat.read(file);
+            } catch (IOException e) {
+                // this one is damaged (e.g. the computer was turned off while it was being written), so the one before it is tried
+            }
+        }
+        return null;
+    }
+
+    // waits for the checkpoint that is being written (and the one waiting, if there is one) to finish
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/**
+ * Works out when a board has settled down: it has died out, stopped changing (a still life) or started repeating
+ * (an oscillator, like blinker.gol, which repeats every 2 generations). From then on nothing new will happen, so the
+ * generations after it don't need to be worked out.
+ *
+ * Each generation is given a 64 bit hash. Like a Zobrist hash, it is the XOR of one part for each piece of the board
+ * (here each word of 64 cells, mixed with a random key for that word's place in the grid), so when a generation is
+ * worked out, only the parts for the words that changed have to be swapped for new ones. On a board that has mostly
+ * settled down nearly every word is the same, and comparing the new grid with the one before is much quicker than
+ * hashing it again. While lots of the board is changing, checking each word is slower than just hashing every word
+ * (the CPU can't guess which words changed), so it switches between the two depending on how much changed last time.
+ *
+ * The hashes of the last 'history' generations are kept in a ring, and a table from hashes to the last generation
+ * they were seen at finds when a hash comes round again. Only cycles up to the length of the history are found, so the
+ * memory used doesn't grow however long it runs. The ring and the table start with room for INITIAL_RING generations
+ * and double whenever the generations since start() don't fit, up to what the history needs. So a board that settles
+ * down quickly (or one of thousands of server sessions that is hardly stepped) uses a few KB instead of about 80KB.
+ *
+ * Two different boards can have the same hash, so a match is only a candidate. The grid is copied at that generation,
+ * and the cycle only counts once the grid a period later is exactly the same (for a still life that is checked
+ * straight away against the generation before). So the board is never said to have settled when it hasn't, but an
+ * oscillator is found a period later than its hash first matched.
+ *
+ * For Generations rules only the live cells are hashed. The dying cells are worked out from the live cells of the
+ * last (states - 2) generations, so a cycle only counts once the live cells have matched for (states - 1) generations
+ * in a row. Because of that the cycle can be found (and getCycleStart() can be) up to (states - 2) generations late.
+ * Those (states - 1) generations are all checked against copies of the grid too, so a board with many states can need
+ * that many copies while a candidate is being checked.
+ *
+ * Cost: once most of a board has settled, only the words that changed are looked at, and it adds a few percent to each
+ * generation. On a small board where most of the cells keep changing (e.g. a 64x64 soup), every word is hashed every
+ * generation, which is about as much work per word as a lot of the step itself, and it adds about 10-20%.
+ *
+ * Usage: start() with the first generation, then observe() straight after every step(1). If the cells are changed in
+ * between, reset() has to be called (Simulation does all of this with setCycleDetection(true)).
+ */
+
+package main.java;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public class CycleDetector {
+    public static final int DEFAULT_HISTORY = 1024; // the longest cycle found by default
+    public static final int MAX_HISTORY = 1 << 24;
+    private static final int INITIAL_RING = 64; // how many hashes the ring has room for at first
+    private static final int FEW_CHANGED = 16; // if less than 1 in this many words changed, only the changed words are hashed next time
+    private static final long KEY_SEED = 0x5EED5EED5EEDL; // the keys are always the same, so the hashes are the same every run
+
+    public enum Outcome {
+        RUNNING, // it hasn't settled down yet (or it hasn't been looked at since it was started)
+        DIED_OUT, // every cell is dead
+        STILL_LIFE, // the cells have stopped changing
+        OSCILLATING // the cells repeat every getPeriod() generations
+    }
+
+    private final long[] keys; // a random number for each word of the grid
+    private final int maxRing; // the size the ring grows to, which fits a cycle of the whole history
+    private long[] history; // the hash of each of the last generations, at [count & historyMask]
+    private int historyMask;
+    private long[] tableHashes; // the table from hashes to the count they were last seen at. Each hash has one
+    private long[] tableCounts; // place it can go, and a hash that lands on another one just replaces it
+    private int tableMask;
+    private final int matchesNeeded; // how many generations in a row have to match (1 unless it is a Generations rule)
+
+    private long hash; // the hash of the last generation
+    private boolean fewChanged = false; // whether only a few words changed in the last generation
+    private boolean started = false;
+    private long count = 0; // how many generations have been looked at (it is never reset, so old entries can be told apart)
+    private long startCount = 0; // the count of the generation start() was called with
+    private long startGeneration; // the generation start() was called with
+    private Outcome outcome = Outcome.RUNNING;
+    private long period = 0;
+    private long cycleStart = -1; // the first generation of the cycle
+    private long candidatePeriod = 0; // the period of the hash match being checked (0 if there isn't one)
+    private long candidateCount; // the count of the first generation copied for it
+    private BitGrid[] copies = new BitGrid[0]; // the grids from candidateCount on, to check the generations a period later against
+
+    public CycleDetector(int width, int height, Rule rule) {
+        this(width, height, rule, DEFAULT_HISTORY);
+    }
+
+    // 'history' is the longest cycle that can be found
+    public CycleDetector(int width, int height, Rule rule, int history) {
+        if (history < 1 || history > MAX_HISTORY) {
+            throw new IllegalArgumentException("The history has to be between 1 and " + MAX_HISTORY + " generations, not " + history);
+        }
+        maxRing = Integer.highestOneBit(history + rule.getStates()) * 2; // a cycle of 'history' and the matches before it fit
+        makeRing(Math.min(INITIAL_RING, maxRing));
+        matchesNeeded = rule.getStates() - 1;
+        keys = new long[((width + BitGrid.WORD_SIZE - 1) / BitGrid.WORD_SIZE) * height];
+        SplittableRandom random = new SplittableRandom(KEY_SEED);
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+        }
+    }
+
+    // starts again from 'grid', which is generation 'generation'. Everything seen before is forgotten
+    public void start(BitGrid grid, long generation) {
+        long h = 0;
+        long[] words = grid.getWords();
+        for (int i = 0; i < words.length; i++) {
+            h ^= part(words[i], keys[i]);
+        }
+        hash = h;
+        started = true;
+        outcome = Outcome.RUNNING;
+        period = 0;
+        cycleStart = -1;
+        candidatePeriod = 0;
+        count++;
+        startCount = count;
+        startGeneration = generation;
+        remember();
+    }
+
+    // forgets everything, because the cells have been changed. start() has to be called before observe() again
+    public void reset() {
+        started = false;
+        outcome = Outcome.RUNNING;
+        period = 0;
+        cycleStart = -1;
+        candidatePeriod = 0;
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    /* Looks at the generation that has just been worked out. 'previous' has to have the same cells as the grid that was
+     * passed to the last start() or observe(). Returns true if the board has settled down (see getOutcome()).
+     */
+    public boolean observe(BitGrid grid, BitGrid previous) {
+        if (!started) {
+            throw new IllegalStateException("start() has to be called before observe()");
+        }
+        if (outcome != Outcome.RUNNING) {
+            return true; // it has already settled down, so nothing new can happen
+        }
+        long[] now = grid.getWords();
+        long[] before = previous.getWords();
+        long h;
+        int changed = 0;
+        if (fewChanged) {
+            // the old word's part is taken out of the hash (XOR undoes itself) and the new one put in
+            h = hash;
+            for (int i = 0; i < now.length; i++) {
+                if (now[i] != before[i]) {
+                    h ^= part(before[i], keys[i]) ^ part(now[i], keys[i]);
+                    changed++;
+                }
+            }
+        } else {
+            // when lots of words change, the CPU can't guess which ones will, and it is quicker to work out the hash
+            // again from every word without any ifs
+            h = 0;
+            for (int i = 0; i < now.length; i++) {
+                h ^= part(now[i], keys[i]);
+            }
+            for (int i = 0; i < now.length; i += FEW_CHANGED) { // a sample of the words is enough to tell if it has calmed down
+                changed += now[i] != before[i] ? FEW_CHANGED : 0;
+            }
+        }
+        fewChanged = changed <= now.length / FEW_CHANGED;
+        hash = h;
+        count++;
+        long seenAt = lookUp();
+        remember();
+        if (candidatePeriod != 0) {
+            return checkCandidate(grid);
+        }
+        if (seenAt >= 0 && isRepeating(count - seenAt)) {
+            long cyclePeriod = count - seenAt;
+            if (cyclePeriod == 1 && matchesNeeded == 1) {
+                // the generation before is still there to check against, so a still life is found without waiting
+                if (Arrays.equals(now, before)) {
+                    settle(grid, 1);
+                    return true;
+                }
+                return false; // the hashes only matched by chance
+            }
+            candidatePeriod = cyclePeriod;
+            candidateCount = count;
+            return checkCandidate(grid);
+        }
+        return false;
+    }
+
+    /* Copies the grid while it is one of the first 'matchesNeeded' generations of the candidate, and checks it against
+     * the copy from a period before once there is one. Returns true if the candidate has turned out to be a real cycle.
+     */
+    private boolean checkCandidate(BitGrid grid) {
+        long since = count - candidateCount;
+        if (since >= candidatePeriod) {
+            BitGrid copy = copies[(int) (since - candidatePeriod)];
+            if (!Arrays.equals(grid.getWords(), copy.getWords())) {
+                candidatePeriod = 0; // the hashes only matched by chance, so it goes on looking
+                return false;
+            }
+            if (since - candidatePeriod == matchesNeeded - 1) {
+                long cyclePeriod = candidatePeriod;
+                candidatePeriod = 0;
+                settle(grid, cyclePeriod);
+                return true;
+            }
+        }
+        if (since < matchesNeeded) {
+            if (copies.length < matchesNeeded) {
+                copies = Arrays.copyOf(copies, matchesNeeded);
+            }
+            int k = (int) since;
+            if (copies[k] == null || copies[k].getWidth() != grid.getWidth() || copies[k].getHeight() != grid.getHeight()) {
+                copies[k] = new BitGrid(grid.getWidth(), grid.getHeight());
+            }
+            copies[k].copyFrom(grid);
+        }
+        return false;
+    }
+
+    /* The part of the hash for one word. Every bit of the word changes about half the bits of the part. Just multiplying
+     * by the key isn't enough: a multiply only moves bits up, so a change in the top columns of a word would only reach
+     * the top bits of the hash, and two of them could easily cancel out.
+     */
+    private static long part(long word, long key) {
+        long x = word ^ key;
+        x ^= x >>> 32;
+        x *= 0xD6E8FEB86659FD93L;
+        return x ^ (x >>> 29);
+    }
+
+    // the count of the last generation that had the same hash as this one, or -1 if it isn't in the history
+    private long lookUp() {
+        int slot = slotOf(hash);
+        long seenAt = tableCounts[slot];
+        if (tableHashes[slot] != hash || seenAt < startCount || count - seenAt > historyMask) {
+            return -1;
+        }
+        return seenAt;
+    }
+
+    private void remember() {
+        if (count - history.length >= startCount && history.length < maxRing) {
+            grow(); // the oldest generation since start() would be written over
+        }
+        int slot = slotOf(hash);
+        tableHashes[slot] = hash;
+        tableCounts[slot] = count;
+        history[(int) count & historyMask] = hash;
+    }
+
+    private void makeRing(int ringSize) {
+        history = new long[ringSize];
+        historyMask = ringSize - 1;
+        tableHashes = new long[ringSize * 2]; // at most half full
+        tableCounts = new long[ringSize * 2];
+        tableMask = ringSize * 2 - 1;
+    }
+
+    // doubles the ring and the table. The hashes since start() are put back in order, so that the table has the last count each one was seen at
+    private void grow() {
+        long[] old = history;
+        int oldMask = historyMask;
+        makeRing(old.length * 2);
+        for (long c = Math.max(startCount, count - oldMask); c < count; c++) {
+            long h = old[(int) c & oldMask];
+            history[(int) c & historyMask] = h;
+            int slot = slotOf(h);
+            tableHashes[slot] = h;
+            tableCounts[slot] = c;
+        }
+    }
+
+    private int slotOf(long h) {
+        return (int) (h ^ (h >>> 32)) & tableMask;
+    }
+
+    // whether the generations have matched the ones 'cyclePeriod' before for long enough (see the top of the file)
+    private boolean isRepeating(long cyclePeriod) {
+        if (count - cyclePeriod - (matchesNeeded - 1) < startCount || cyclePeriod + matchesNeeded > historyMask) {
+            return false;
+        }
+        for (int j = 1; j < matchesNeeded; j++) {
+            if (history[(int) (count - j) & historyMask] != history[(int) (count - cyclePeriod - j) & historyMask]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void settle(BitGrid grid, long cyclePeriod) {
+        // the hash might have been pushed out of the table and only been found a cycle later than it could have been,
+        // so this goes back through the history to the first generation that matches the one a period after it
+        long first = count - cyclePeriod;
+        long earliest = Math.max(startCount, count - historyMask);
+        while (first - 1 >= earliest && history[(int) (first - 1) & historyMask] == history[(int) (first - 1 + cyclePeriod) & historyMask]) {
+            first--;
+        }
+        first = Math.min(first + matchesNeeded - 1, count - cyclePeriod); // a state needs 'matchesNeeded' live grids before it
+        period = cyclePeriod;
+        cycleStart = startGeneration + (first - startCount);
+        if (cyclePeriod == 1) {
+            outcome = grid.population() == 0 ? Outcome.DIED_OUT : Outcome.STILL_LIFE;
+        } else {
+            outcome = Outcome.OSCILLATING;
+        }
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public boolean isSettled() {
+        return outcome != Outcome.RUNNING;
+    }
+
+    // how many generations the cycle is (1 for a still life or a board that has died out, 0 if it hasn't settled down)
+    public long getPeriod() {
+        return period;
+    }
+
+    // the first generation of the cycle (the generation it settled down at), or -1 if it hasn't settled down.
+    // With Generations rules it can be a few generations late (see the top of the file)
+    public long getCycleStart() {
+        return cycleStart;
+    }
+
+    // the hash of the last generation that was looked at
+    public long getHash() {
+        return hash;
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * An engine is the part of the simulation that holds the cells and works out the next generations.
+ * Nothing in an engine reads from the keyboard or prints to the screen, so it can be used by other programs
+ * without going through the menus in GameOfLife.
+ *
+ * Rows and columns start at 0 (unlike the coordinates the user types in, which start at 1).
+ * Engines use Conway's rules unless they say otherwise through getRule(). Only engines for Generations rules have
+ * cells with states other than dead (0) and alive (1). Engines with edges have dead edges unless getTopology() says
+ * otherwise. Engines with no edges (like HashLifeEngine) just say DEAD.
+ */
+
+package main.java;
+
+public interface Engine {
+    boolean getCell(int row, int column); // whether the cell is alive
+
+    void setCell(int row, int column, boolean alive);
+
+    void step(long generations); // advances the cells by this many generations
+
+    long getPopulation(); // the amount of cells that are alive
+
+    default Rule getRule() {
+        return Rule.CONWAY;
+    }
+
+    default Topology getTopology() {
+        return Topology.DEAD;
+    }
+
+    // the state of the cell: 0 is dead, 1 is alive and anything higher is dying (see Rule)
+    default int getState(int row, int column) {
+        return getCell(row, column) ? 1 : 0;
+    }
+
+    default void setState(int row, int column, int state) {
+        if (state > 1) {
+            throw new IllegalArgumentException("This engine's cells can only be dead (0) or alive (1), not " + state);
+        }
+        setCell(row, column, state == 1);
+    }
+}
@@ -24,19 +24,25 @@
 package main.java;
 import java.util.Scanner; //used for the keyboard
 import java.io.IOException; //used in most try statements (not all)
+import java.nio.file.Path; //used for the metrics file
+import javax.management.JMException; //used if the metrics can't be shown through JMX
 
 //the following are for the use of files specifically
 import java.io.File;
-import java.io.FileWriter;
+import java.nio.file.NoSuchFileException;
 
 public class GameOfLife {
-    public final int MAX_SIZE = 50; //this will be the maximum width and height of the grid. Otherwise, it is too big for the user to see
+    public final int MAX_SIZE = 200; //this will be the maximum width and height of the grid. Otherwise, it is too big for the user to see (even with a small font)
     public final int MIN_SIZE = 10; //this will be the minimum width and height of the grid. Otherwise, it is too small to be used
     public int gridSize; // variable will be determined by what the user inputs or the by the first line of a .gol file
-    public boolean[][] grid = new boolean[MAX_SIZE][MAX_SIZE]; //this array is the same size as the grid and will hold the information to whether the cell is alive or dead.
-    public boolean[][] changeGrid = new boolean[MAX_SIZE][MAX_SIZE]; //this array is what is used to record whether the cell is changing each turn.
+    public Simulation simulation = new Simulation(MAX_SIZE, MAX_SIZE); //this holds the information to whether each cell is alive or dead and works out the turns. It is remade whenever the grid size changes
     public final char ON = 'O'; //character used when a cell is 'alive' (The words 'alive' and 'on' are used interchangeably in reference to cells)
     public final char OFF = '•'; //character used when a cell is 'dead' (The words 'dead' and 'off' are used interchangeably in reference to cells)
+    public Rule rule = Rule.CONWAY; //the rules used to work out the turns. They can be changed from the menu (e.g. to B36/S23)
+    public Topology topology = Topology.DEAD; //what is past the edges of the grid. It can be changed from the menu (e.g. so the edges wrap around)
+    public TerminalRenderer renderer = new TerminalRenderer(System.out, ON, OFF); //this draws the grid for gridDraw()
+    public SimulationMetrics metrics = new SimulationMetrics(); //this records how fast the turns are and how long drawing, loading and saving take (see SimulationMetrics)
+    public final long METRICS_FILE_MILLIS = 5000; //how often the metrics file is written, if there is one
     public final int MAX_TURNS = 50; //max amount of turns the player can advance at any one time
     public final float DEFAULT_SECONDS_BETWEEN_TURNS = 1.5f; //this is the default amount of time between turns
     public float secondsBetweenTurns = DEFAULT_SECONDS_BETWEEN_TURNS; //this is the amount of time between turns. This is adjustable
@@ -47,11 +53,22 @@ public class GameOfLife {
 
     Scanner kb = new Scanner(System.in); //keyboard initialisation
 
+    // the metrics can be written to a file for Prometheus with: java main.java.GameOfLife --metrics gol.prom
     public static void main(String[] args) { //initiates program
         GameOfLife game = new GameOfLife();
+        try {
+            game.metrics.register(); // so the metrics can be seen in JConsole or VisualVM
+        } catch (JMException e) {
+            System.out.println("The metrics can't be shown through JMX: " + e.getMessage());
+        }
+        if (args.length >= 2 && args[0].equals("--metrics")) {
+            game.metrics.startWriting(Path.of(args[1]), game.METRICS_FILE_MILLIS);
+        }
+        game.simulation.setMetrics(game.metrics);
+        game.start();
     }
 
-    public GameOfLife() {
+    public void start() {
         // this is what the game opens with
         System.out.println("Welcome to Conway's game of life. To see instructions, press 'i'. \nTo start the game, enter how large you want the grid to be (less than "+MAX_SIZE+" and more than "+MIN_SIZE+") or enter 'l' to load a save file");
         welcome(); // this method starts the game
@@ -73,11 +90,7 @@ public class GameOfLife {
                 gridSize = MIN_SIZE;
             }
 
-            for (int i = 0; i < gridSize; i++) { // makes the right amount of rows
-                for (int j = 0; j < gridSize; j++) { // makes the right amount of columns
-                    grid[i][j] = false; // assigns that cell as 'off' so that no cells are on to begin with
-                }
-            }
+            newGrid(); // makes a grid of the right size with no cells on to begin with
 
             gridDraw(true); // method that draws the grid and continues the game
 
@@ -94,9 +107,15 @@ public class GameOfLife {
             }
         }
     }
+    // makes a new (empty) grid that is gridSize by gridSize
+    public void newGrid() {
+        simulation = new Simulation(new BitGrid(gridSize, gridSize), rule, topology);
+        simulation.setMetrics(metrics);
+    }
+
     public void info(boolean start) { // if start is true, then welcome() is run afterwards, if false, gridDraw(true)
         // the information
-        System.out.println("This is a simulator based off a set of rules designed by John Conway. \nIt is designed to simulate a colony and can be used to make recurring patterns, interesting shapes and is made to just generally have fun with.\nThe rules are as follows:\nAny live cell with fewer than two live neighbours dies, as if by underpopulation. \nAny live cell with two or three live neighbours lives on to the next generation. \nAny live cell with more than three live neighbours dies, as if by overpopulation. \nAny dead cell with exactly three live neighbours becomes a live cell, as if by reproduction.\n\n.gol files can be run in this program. \nThis is an example of the layout of a .gol file: \n4 \n0110 \n0000 \n0100 \n1001 \n\nThe first number is the grid size and the rest of the numbers represent the cells. '0' means the cell is dead and '1' means the cell is alive. \nIn this program, 'b.gol' or 'B.gol' will not work for filenames. \nThe .gol file must be in the same folder as the src folder \n\nJust follow the prompts and have fun!");
+        System.out.println("This is a simulator based off a set of rules designed by John Conway. \nIt is designed to simulate a colony and can be used to make recurring patterns, interesting shapes and is made to just generally have fun with.\nThe rules are as follows:\nAny live cell with fewer than two live neighbours dies, as if by underpopulation. \nAny live cell with two or three live neighbours lives on to the next generation. \nAny live cell with more than three live neighbours dies, as if by overpopulation. \nAny dead cell with exactly three live neighbours becomes a live cell, as if by reproduction.\n\n.gol files can be run in this program. \nThis is an example of the layout of a .gol file: \n4 \n0110 \n0000 \n0100 \n1001 \n\nThe first number is the grid size and the rest of the numbers represent the cells. '0' means the cell is dead and '1' means the cell is alive. \nIn this program, 'b.gol' or 'B.gol' will not work for filenames. \nThe .gol file must be in the same folder as the src folder \n.rle and .golb files can be loaded too, by typing the whole name of the file (e.g. 'glider.rle') \nThe rules can be changed from the menu, e.g. to B36/S23 (born with 3 or 6 neighbours, survives with 2 or 3). \n\nJust follow the prompts and have fun!");
         if (start) { // if the player came from the GameOfLife() method, that means the player hasn't started the game yet.
             System.out.println("\nTo start the game, enter how large you want the grid to be. This number has to be less than " + MAX_SIZE + " and more than " + MIN_SIZE + ". 35 is recommended if you are unsure.\nTo load a save file, enter 'l'");
             welcome(); //runs the welcome method
@@ -110,82 +129,68 @@ public class GameOfLife {
     //method that draws the grid. If 'cont' is false, the method ends without needing user input. This is so the advance turns method can run.
     // if 'cont' is true, the method continues on and asks the user for input.
     public void gridDraw(boolean cont) {
-        // this draws the grid
-
-        //this prints the first line of numbers (the x-axis)
-        System.out.print("   "); // this space needs to be at the beginning to get the numbers to line up right
-        for(int i = 1; i < (gridSize+1); i++) { // this section of code prints out a row of numbers for the user to refer to. The '1' and '+1' is because gridSize starts at 0 whereas my coordinates don't
-            if (i <= 9) {
-                System.out.print(i + "  "); // the numbers with 1 digit need 2 spaces to make them line up right.
-            } else {
-                System.out.print(i + " "); // the numbers with 2 digits need 1 space to make them line up right.
-            }
-        }
-        System.out.println();
-
-        // this prints the rest of the grid
-        // each line starts with number and then has the right amount of characters to show the cells
-        for (int i = 0; i < gridSize; i++) { //makes the right amount of rows
-            i++; // this is so the numbers on the y-axis start at 1 not 0.
-            if (i <= 9) {
-                System.out.print(i + "  "); // the numbers with 1 digit need 2 spaces to make them line up right.
-            } else {
-                System.out.print(i + " "); // the numbers with 2 digits need 1 space to make them line up right.
-            }
-            i--;
-            for (int j = 0; j < gridSize; j++) { //makes the right amount of columns
-                render(i, j); // this method prints the right character for whether the cell is alive or dead
-            }
-            System.out.println(); // prints a new line
-        }
-
-        System.out.println(); // leaves a gap between the grid and the instructions
+        // this draws the grid. The whole grid (and the gap under it) is put together by the renderer and printed all at once
+        long drawStart = System.nanoTime();
+        renderer.drawFrame(simulation);
+        metrics.recordRender(System.nanoTime() - drawStart);
 
         if(cont) { // if the user hasn't asked for more turns (e.g. it's the third turn out of three)
-            System.out.println("To advance turns, enter 'a'. To manually change cells, enter 'c'.\nTo load a save file, enter 'l'. To save current state, enter 's'. \nTo view the instructions, enter 'i'. To restart the game, enter 'r'. To quit, enter 'q'.");
-            switch (kb.nextLine().toLowerCase()) { // this compares the lowercase version of whatever the user inputted to all the cases
-                case "a":
-                    turn(); // if the user's input was 'a' or 'A', it runs the advance turn method
-                    break;
-                case "c":
-                    changeCells(); // if the user's input was 'c' or 'C', it runs the changeCells() method
-                    break;
-                case "i":
-                    info(false); // et c.
-                    break;
-                case "r":
-                    System.out.println("Welcome to Conway's game of life. To see instructions, press 'i'. To start the game, enter how large you want the grid to be (less than "+MAX_SIZE+" and more than "+MIN_SIZE+"). To load a save file, enter 'l'.");
-                    welcome(); // this function is the beginning of the game
-                    break;
-                case "q":
-                    System.out.println("Quitting..."); // if the user's input was 'q' or 'Q',there is nothing else for the game to do so it stops the program
-                    System.exit(0);
-                    break;
-                case "l":
-                    System.out.println("Enter 'b' to go back to the menu or the name of the file you would like to open.");
-                    String fileName = kb.nextLine();
-                    loadFile(fileName, false); // if the file does not load, the user is re-directed back to gridDraw() not welcome()
-                    break;
-                case "s":
-                    saveFile();
-                    break;
-                default:  // if the user's input was not 'a', 'i', 'r' or 'c', this whole method (gridDraw()) runs again
-                    System.out.println("Invalid input");
-                    gridDraw(true);
-                    break;
-            }
+            menu();
         }
     }
 
-    public void render(int i, int j){ // runs for each cell when the grid is drawn (from gridDraw)
-        if (changeGrid[i][j]) { // if changeGrid is true it means that the cell is either going from on to off or the other way round.
-            grid[i][j] = !grid[i][j];
-            changeGrid[i][j] = false; // resets the changeGrid variable, so that it works for the next time the grid is drawn
-        }
-        if (grid[i][j]) {
-            System.out.print(ON + "  "); //this prints out the 'alive' character if the cell is alive
-        } else {
-            System.out.print(OFF + "  "); // this prints out the 'dead' character if the cell is dead
+    // draws only the cells that have changed since the last time this was used (see TerminalRenderer.drawChanges()),
+    // so that turn() doesn't have to print the whole of a big grid every turn. The cursor is left on the line under the grid
+    public void gridDrawChanges() {
+        long drawStart = System.nanoTime();
+        renderer.drawChanges(simulation);
+        metrics.recordRender(System.nanoTime() - drawStart);
+    }
+
+    // asks the user what to do next. It runs after the grid has been drawn
+    public void menu() {
+        renderer.forgetLastFrame(); // the menu moves the grid up the screen, so gridDrawChanges() has to draw all of it next time
+        System.out.println("To advance turns, enter 'a'. To manually change cells, enter 'c'.\nTo load a save file, enter 'l'. To save current state, enter 's'. \nTo view the instructions, enter 'i'. To change the rules, enter 'u'. To change the edges, enter 'e'. \nTo go back to an earlier turn, enter 'w'. To restart the game, enter 'r'. To quit, enter 'q'.");
+        switch (kb.nextLine().toLowerCase()) { // this compares the lowercase version of whatever the user inputted to all the cases
+            case "a":
+                turn(); // if the user's input was 'a' or 'A', it runs the advance turn method
+                break;
+            case "c":
+                changeCells(); // if the user's input was 'c' or 'C', it runs the changeCells() method
+                break;
+            case "i":
+                info(false); // et c.
+                break;
+            case "r":
+                System.out.println("Welcome to Conway's game of life. To see instructions, press 'i'. To start the game, enter how large you want the grid to be (less than "+MAX_SIZE+" and more than "+MIN_SIZE+"). To load a save file, enter 'l'.");
+                welcome(); // this function is the beginning of the game
+                break;
+            case "q":
+                System.out.println("Quitting..."); // if the user's input was 'q' or 'Q',there is nothing else for the game to do so it stops the program
+                metrics.close(); // writes the metrics file one last time, if there is one
+                System.exit(0);
+                break;
+            case "l":
+                System.out.println("Enter 'b' to go back to the menu or the name of the file you would like to open.");
+                String fileName = kb.nextLine();
+                loadFile(fileName, false); // if the file does not load, the user is re-directed back to gridDraw() not welcome()
+                break;
+            case "s":
+                saveFile();
+                break;
+            case "u":
+                changeRule();
+                break;
+            case "e":
+                changeEdges();
+                break;
+            case "w":
+                rewind();
+                break;
+            default:  // if the user's input was not 'a', 'i', 'r' or 'c', this whole method (gridDraw()) runs again
+                System.out.println("Invalid input");
+                gridDraw(true);
+                break;
         }
     }
 
@@ -231,7 +236,7 @@ public class GameOfLife {
             System.out.println("That coordinate isn't on the grid");
             changeCells();
         }
-        changeGrid[i - 1][j - 1] = true; //the -1 is because the changeGrid starts at 0 but the numbers down the side start at 1.
+        simulation.setCell(i - 1, j - 1, !simulation.getCell(i - 1, j - 1)); //the cell changes state. The -1 is because the simulation starts at 0 but the numbers down the side start at 1.
         firstCellChange = false; // for the next time changeCells is run, it will print out an option to stop changing cells
         gridDraw(false); // it draws the grid but doesn't give the user the input options
         changeCells();
@@ -319,38 +324,29 @@ public class GameOfLife {
                 }
             }
 
-            // in this section, I have used 'cellA' to indicate a cell that is adjacent to the cell in question 'cellQ'
+            if (simulation.getCycleDetector() == null) {
+                simulation.setCycleDetection(true); // so the user can be told when the board has settled down
+            }
+            if (simulation.getHistory() == null && !simulation.getRule().isGenerations()) {
+                simulation.setHistory(new GenerationHistory(simulation.getWidth(), simulation.getHeight())); // so the user can go back to earlier turns (see rewind())
+            }
+            renderer.forgetLastFrame(); // the questions above have been printed under the grid, so the first turn draws all of it again
             for (int t = 0; t < numberOfTurns; t++) { // this for loop runs for the amount of turns the users wants
-                // these two for loops ensure that each cell is checked
-                for (int i = 0; i < gridSize; i++) {
-                    for (int j = 0; j < gridSize; j++) {
-                        int alive = 0; // sets the amount of alive cellA surrounding cellQ to 0
-                        // these two for loops check each cellA
-                        for (int countI = -1; countI < 2; countI++) {
-                            for (int countJ = -1; countJ < 2; countJ++) {
-                                if (countI == 0 && countJ == 0) { //this is so cellQ isn't counted
-                                    // System.out.println("Cell at coordinate ("+j+","+i+") checked");
-
-                                    // runs for each cellA
-                                    // if cellA is on the grid (not off the edges) and is alive, the count of how many cellA that surround cellQ are alive increases by 1
-                                } else if (((j + countJ) > -1 && (j + countJ) < gridSize) && ((i + countI) > -1 && (i + countI) < gridSize) && (grid[i + countI][j + countJ])) {
-                                    alive++;
-                                }
-                            }
-                        }
-
-                        // if cellQ is alive and less than 2 or more than three cellA are alive, cellQ changes state
-                        if (grid[i][j] && (alive < 2 || alive > 3)) {
-                            changeGrid[i][j] = true;
-                            // if cellQ i dead and there are exactly 3 alive cellA, cellQ changes state
-                        } else if ((!grid[i][j]) && (alive == 3)) {
-                            changeGrid[i][j] = true;
-                        }
-                    }
+                boolean settledBefore = simulation.isSettled();
+                simulation.step(); // works out the next generation for every cell at once (see BitGrid.step())
+                gridDrawChanges(); // only the cells that changed are printed
+                if (simulation.isSettled() && !settledBefore) {
+                    // this goes on the line under the grid, which the next turns don't draw over, so it stays on the screen
+                    System.out.println(settledMessage());
                 }
+                boolean stopped = simulation.isSettled() && simulation.getCycleDetector().getPeriod() == 1; // nothing will change any more, so there is no point waiting for the rest of the turns
 
-                //if it is not the last turn, it draws the grid and then comes back and runs the for loop in line 323 again. Otherwise, it runs the gridDraw method and then continues
-                gridDraw(t >= (numberOfTurns - 1));
+                //if it is not the last turn, it comes back and runs the for loop again. Otherwise, it shows the menu and then continues
+                if (stopped || t >= (numberOfTurns - 1)) {
+                    System.out.println(); // the same gap under the grid that gridDraw() leaves
+                    menu();
+                    return;
+                }
 
                 //this leaves a small amount of time (defined in secondsBetweenTurns) between each turn
                 try {
@@ -362,45 +358,50 @@ public class GameOfLife {
         }
     }
 
+    // what the board has settled down into, e.g. "The board has become a period 2 oscillator (from turn 3)."
+    public String settledMessage() {
+        CycleDetector cycles = simulation.getCycleDetector();
+        switch (cycles.getOutcome()) {
+            case DIED_OUT:
+                return "Every cell has died (at turn " + cycles.getCycleStart() + "), so nothing else will happen.";
+            case STILL_LIFE:
+                return "The board has stopped changing (at turn " + cycles.getCycleStart() + "), so nothing else will happen.";
+            default:
+                return "The board has become a period " + cycles.getPeriod() + " oscillator (from turn " + cycles.getCycleStart() + "): it repeats every " + cycles.getPeriod() + " turns.";
+        }
+    }
+
     // this runs when the user wants to load a file
     public void loadFile(String fileName, boolean fromWelcome){
         if(fileName.equalsIgnoreCase("b")){ // this means that the user wants to go back to the menu
             gridDraw(true);
         }
-        File fileAsked = new File(fileName+".gol");
+        File fileAsked = new File(fileName);
+        if (!fileAsked.isFile()) { // if the name was typed without an extension, it is a .gol file
+            fileAsked = new File(fileName+".gol");
+        }
         try{
-            Scanner readFile = new Scanner(fileAsked);
-            gridSize = Integer.parseInt(readFile.nextLine()); // the first line in a .gol file is the grid size
-            if (gridSize > MAX_SIZE || gridSize < MIN_SIZE){
+            long loadStart = System.nanoTime();
+            Simulation loaded = BoardFile.load(fileAsked.toPath(), rule); // reads the cells from the file. The format (.gol, .rle or .golb) is worked out by BoardFile
+            metrics.recordLoad(System.nanoTime() - loadStart);
+            int size = Math.max(loaded.getWidth(), loaded.getHeight());
+            if (BoardFile.detect(fileAsked.toPath()) != BoardFile.Format.GOL && (loaded.getWidth() != loaded.getHeight() || size < MIN_SIZE)) {
+                // .rle and .golb files don't have to be square (or as big as MIN_SIZE), so the pattern is put on a square grid
+                size = Math.max(size, MIN_SIZE);
+                loaded = squareUp(loaded, size);
+            }
+            if (size > MAX_SIZE || size < MIN_SIZE){
                 System.out.println("That file is not compatible with this program due to an incompatible grid size \nThe maximum grid size for this program is "+MAX_SIZE+"\nThe minimum grid size is "+MIN_SIZE);
                 gridDraw(true);
             }
-            try {
-                for (int i = 0; i < gridSize; i++) { //makes the right amount of rows
-                    if (readFile.hasNextLine()) {
-                        String line = readFile.nextLine();
-                        for (int j = 0; j < gridSize; j++) { //makes the right amount of columns
-                            if (line.charAt(j) == '0') { // if the character is a '0', the cell is dead
-                                grid[i][j] = false; // assigns that cell as 'off'.
-                            } else if (line.charAt(j) == '1') { // if the character is a '1', the cell is alive
-                                grid[i][j] = true; // assigns that cell as 'off'.
-                            } else { // if there are any other characters (not '1' or '0')
-                                fileNotCompatiableError(fileName, fromWelcome);
-                            }
-                        }
-                    } else {
-                        fileNotCompatiableError(fileName, fromWelcome);
-                    }
-
-                }
-            }catch(StringIndexOutOfBoundsException e){ // if a line ends early and there's no char or if there isn't enough lines
-                fileNotCompatiableError(fileName, fromWelcome);
-
-            }
-
-            readFile.close(); // closes file reader
+            gridSize = size; // the first line in a .gol file is the grid size
+            simulation = loaded; // the simulation is replaced with the one from the file
+            simulation.setMetrics(metrics);
+            metrics.recordPopulation(simulation.getPopulation());
+            rule = loaded.getRule(); // .rle and .golb files can have their own rules
+            topology = loaded.getTopology(); // and .golb files remember their edges
             gridDraw(true);
-        }catch(IOException e){ // if the file 'fileName.gol' could not be found, this catch runs
+        }catch(NoSuchFileException e){ // if the file 'fileName.gol' could not be found, this catch runs
             System.out.println("That file could not be found. \nTo go back, enter 'b' or enter the name of the file you would like to open.");
             fileName = kb.nextLine();
             if (fileName.equalsIgnoreCase("b")) {
@@ -412,7 +413,115 @@ public class GameOfLife {
             } else {
                 loadFile(fileName, fromWelcome);
             }
+        }catch(IOException e){ // if there are any characters that aren't '1' or '0', or there aren't enough lines, or a line ends early
+            fileNotCompatiableError(fileName, fromWelcome);
+        }
+    }
+
+    // copies a board that isn't square into the top left of a square one that is 'size' by 'size'
+    public Simulation squareUp(Simulation board, int size) {
+        return copyBoard(board, size, board.getRule(), board.getTopology());
+    }
+
+    // copies the cells of 'board' onto a new size x size board that uses 'newRule' and 'newTopology'. States that 'newRule' doesn't have become dead
+    public Simulation copyBoard(Simulation board, int size, Rule newRule, Topology newTopology) {
+        Simulation copy = new Simulation(new BitGrid(size, size), newRule, newTopology);
+        for (int i = 0; i < Math.min(board.getHeight(), size); i++) {
+            for (int j = 0; j < Math.min(board.getWidth(), size); j++) {
+                int state = board.getState(i, j);
+                if (state != 0 && state < newRule.getStates()) {
+                    copy.setState(i, j, state);
+                }
+            }
+        }
+        copy.setGeneration(board.getGeneration());
+        copy.setMetrics(board.getMetrics());
+        return copy;
+    }
+
+    // lets the user pick different rules, written like B3/S23 (born with 3 neighbours, survives with 2 or 3)
+    public void changeRule() {
+        System.out.println("The rules are " + rule + ". Enter new rules (e.g. B36/S23, or B2/S/3 for cells that take 3 turns to die), 'd' for Conway's rules (" + Rule.CONWAY + ") or 'b' to go back.");
+        String input = kb.nextLine();
+        if (input.equalsIgnoreCase("b")) {
+            gridDraw(true);
+            return;
+        }
+        Rule newRule;
+        try {
+            newRule = input.equalsIgnoreCase("d") ? Rule.CONWAY : Rule.parse(input);
+        } catch (IllegalArgumentException notRule) { // if what the user entered isn't a rule
+            System.out.println("Invalid input: " + notRule.getMessage());
+            changeRule();
+            return;
+        }
+        simulation = copyBoard(simulation, gridSize, newRule, topology); // the cells stay where they are, but the new rules are used from now on
+        rule = newRule;
+        System.out.println("The rules are now " + rule + ".");
+        gridDraw(true);
+    }
+
+    // lets the user go back (or forward again) to a turn that has already been worked out
+    public void rewind() {
+        GenerationHistory history = simulation.getHistory();
+        if (history == null || history.getFirstGeneration() < 0) {
+            System.out.println("There are no earlier turns to go back to yet.");
+            gridDraw(true);
+            return;
+        }
+        System.out.println("This is turn " + simulation.getGeneration() + ". Enter the turn you would like to go to (from " + history.getFirstGeneration() + " to " + history.getLastGeneration() + ") or 'b' to go back.");
+        String input = kb.nextLine();
+        if (input.equalsIgnoreCase("b")) {
+            gridDraw(true);
+            return;
+        }
+        long turn;
+        try {
+            turn = Long.parseLong(input.trim());
+        } catch (NumberFormatException notInt) {
+            System.out.println("Invalid input");
+            rewind();
+            return;
+        }
+        if (!history.contains(turn)) { // turns that were skipped once the board settled down aren't kept
+            System.out.println("Turn " + turn + " isn't kept.");
+            rewind();
+            return;
         }
+        simulation.seek(turn); // only the cells that are different are changed (see GenerationHistory)
+        System.out.println("This is now turn " + turn + ". Advancing from here replaces the turns after it.");
+        gridDraw(true);
+    }
+
+    // lets the user pick what is past the edges of the grid
+    public void changeEdges() {
+        System.out.println("The edges are " + topology.name().toLowerCase() + ". Enter 'd' for dead edges, 't' for edges that wrap around (a torus), 'k' for a Klein bottle (the top and bottom wrap around flipped), 'm' for mirrored edges or 'b' to go back.");
+        Topology newTopology;
+        switch (kb.nextLine().toLowerCase()) {
+            case "d":
+                newTopology = Topology.DEAD;
+                break;
+            case "t":
+                newTopology = Topology.TORUS;
+                break;
+            case "k":
+                newTopology = Topology.KLEIN;
+                break;
+            case "m":
+                newTopology = Topology.MIRROR;
+                break;
+            case "b":
+                gridDraw(true);
+                return;
+            default:
+                System.out.println("Invalid input");
+                changeEdges();
+                return;
+        }
+        simulation = copyBoard(simulation, gridSize, rule, newTopology);
+        topology = newTopology;
+        System.out.println("The edges are now " + topology.name().toLowerCase() + ".");
+        gridDraw(true);
     }
 
     // this is a separate method because I have to use it twice. I can't just go back to gridDraw() because the grid array might be only half written over which would cause errors
@@ -434,11 +543,7 @@ public class GameOfLife {
                     System.out.println("That's smaller than the minimum grid size. Setting grid to minimum size…");
                     gridSize = MIN_SIZE;
                 }
-                for (int i = 0; i < gridSize; i++) { //makes the right amount of rows
-                    for (int j = 0; j < gridSize; j++) { //makes the right amount of columns
-                        grid[i][j] = false; // assigns that cell as 'off'.
-                    }
-                }
+                newGrid(); // makes a grid of the right size with every cell 'off'.
             } catch (NumberFormatException notInt){
                 System.out.println("Invalid input");
                 loadFile(fileName, fromWelcome);
@@ -450,9 +555,11 @@ public class GameOfLife {
     public void saveFile(){
         File fileName = null; // initialises file
         boolean foundFileName = false; // initialises variable (this variable is whether a number that is not in use has been found)
+        // .gol files write each cell as one digit, so rules with more than 10 states are saved as snapshots instead (see SnapshotFormat)
+        String extension = simulation.getRule().getStates() > 10 ? ".golb" : ".gol";
         // this goes through numbers until it finds one that is not in use
         for (int i=0; !foundFileName; i++){
-            fileName = new File("sf"+i+".gol"); // file name will look like sf#.gol e.g. sf3.gol
+            fileName = new File("sf"+i+extension); // file name will look like sf#.gol e.g. sf3.gol
             if (!fileName.exists()){ // when it finds a number not in use, it sets foundFileName to 'true'
                 foundFileName = true;
             }
@@ -470,24 +577,11 @@ public class GameOfLife {
             gridDraw(true);
         }
 
-        // this builds what goes into the file
-        StringBuilder buildFile = new StringBuilder();
-        buildFile.append(gridSize).append("\n"); // the first line will be the grid size
-        for (int i = 0; i < gridSize; i++){ // then the rest are just rows of 1s and 0s to show whether the cells are on or off
-            for (int j = 0; j < gridSize; j++){
-                if (grid[i][j]){
-                    buildFile.append("1"); // if the cell is alive, a '1' is added to the file
-                }else{
-                    buildFile.append("0"); // if the cell is dead, a '0' is added to the file
-                }
-            }
-            buildFile.append("\n"); // adds a new line after each row
-        }
-        // this writes the text block that was just made to the file
+        // this writes the grid to the file (see BoardFile)
         try {
-            FileWriter writer = new FileWriter(fileName); // creates the writer
-            writer.write(buildFile.toString()); // writes the text into the file
-            writer.close(); // closes writer
+            long saveStart = System.nanoTime();
+            BoardFile.save(fileName.toPath(), simulation);
+            metrics.recordSave(System.nanoTime() - saveStart);
             System.out.println("State saved!");
             gridDraw(true);
         } catch (IOException e){ // if something goes wrong
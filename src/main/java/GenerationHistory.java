@@ -0,0 +1,306 @@
+/**
+ * Keeps the boards of past generations so that a run can be wound back (or forward again) to any of them, without
+ * keeping a whole copy of every generation.
+ *
+ * The history is split into segments. Each one starts with a keyframe (a copy of every word of the grid) and then has
+ * a delta for each generation after it: the words that changed, and which cells in them flipped (the new word XOR
+ * the old one). A delta works both ways, because XOR undoes itself, so a generation can be reached by going forward
+ * from the keyframe before it, back from the keyframe after it, or either way from the generation last looked at,
+ * whichever touches the fewest words. On a board where little changes each generation, moving one generation only
+ * touches the few words that changed.
+ *
+ * A new keyframe is made every 'keyframeEvery' generations, or sooner if the deltas since the last one would add up to
+ * more memory than a keyframe (then that generation gets a keyframe instead of a delta), so a board where nearly
+ * everything changes each generation never takes more than a keyframe a generation.
+ * When the history takes more than 'maxBytes', the oldest segments are thrown away.
+ *
+ * Only live cells are kept, so it can't be used with Generations rules (their dying cells would be lost).
+ *
+ * Usage: record() the board at each generation (Simulation does this with setHistory()), then seek() to a generation
+ * that contains() says is kept.
+ */
+
+package main.java;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+public class GenerationHistory {
+    public static final int DEFAULT_KEYFRAME_EVERY = 1024;
+    public static final long DEFAULT_MAX_BYTES = 64L << 20; // 64MB
+    private static final int DELTA_OVERHEAD = 48; // about how many bytes each delta takes before the words in it (the object and its two arrays)
+
+    // the words that changed from one generation to the next
+    private static final class Delta {
+        final int[] indexes; // the place of each word in the grid's words
+        final long[] flips; // the cells in that word that flipped
+
+        Delta(int[] indexes, long[] flips) {
+            this.indexes = indexes;
+            this.flips = flips;
+        }
+
+        long bytes() {
+            return DELTA_OVERHEAD + indexes.length * 12L; // an int and a long for each word
+        }
+    }
+
+    // a keyframe and the deltas after it. It holds generations 'start' to 'start + deltas.size()'
+    private static final class Segment {
+        final long start;
+        final long[] keyframe;
+        final List<Delta> deltas = new ArrayList<>();
+        long deltaBytes = 0;
+
+        Segment(long start, long[] keyframe) {
+            this.start = start;
+            this.keyframe = keyframe;
+        }
+
+        long end() {
+            return start + deltas.size();
+        }
+    }
+
+    private final int width;
+    private final int height;
+    private final int keyframeEvery;
+    private final long maxBytes;
+    private final long keyframeBytes;
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>(); // oldest first
+    private long bytes = 0; // the memory used by the segments
+    private final BitGrid cursor; // the board at 'cursorGeneration', which is where seek() and record() start from
+    private long cursorGeneration = -1; // -1 if the cursor isn't a generation that is kept
+    private final int[] changedIndexes; // reused by record() for the words that changed
+    private final long[] changedFlips;
+    private long[] spareKeyframe; // the keyframe of the last segment thrown away, so a new one doesn't have to be made
+
+    public GenerationHistory(int width, int height) {
+        this(width, height, DEFAULT_KEYFRAME_EVERY, DEFAULT_MAX_BYTES);
+    }
+
+    public GenerationHistory(int width, int height, int keyframeEvery, long maxBytes) {
+        if (keyframeEvery < 1) {
+            throw new IllegalArgumentException("There has to be a keyframe at least every generation, not every " + keyframeEvery);
+        }
+        this.width = width;
+        this.height = height;
+        this.keyframeEvery = keyframeEvery;
+        this.maxBytes = maxBytes;
+        cursor = new BitGrid(width, height);
+        keyframeBytes = cursor.getWords().length * 8L;
+        changedIndexes = new int[cursor.getWords().length + 1]; // one more, because the word after the last changed one is written too
+        changedFlips = new long[cursor.getWords().length + 1];
+    }
+
+    /* Remembers that 'grid' is the board at 'generation'. If it follows on from the generation last recorded or sought
+     * to, only the words that changed are kept. Otherwise (the cells were changed, or generations were skipped) a new
+     * keyframe is made. Anything kept from 'generation' onwards is forgotten first, so after seeking back and stepping
+     * again, the old future is replaced by the new one.
+     */
+    public void record(BitGrid grid, long generation) {
+        if (grid.getWidth() != width || grid.getHeight() != height) {
+            throw new IllegalArgumentException("The history is for " + width + "x" + height + " boards, not " + grid.getWidth() + "x" + grid.getHeight());
+        }
+        boolean followsOn = cursorGeneration >= 0 && generation == cursorGeneration + 1;
+        forgetFrom(generation);
+        long[] now = grid.getWords();
+        long[] before = cursor.getWords();
+        if (!followsOn || segments.isEmpty()) {
+            startSegment(generation, now);
+            cursor.copyFrom(grid);
+        } else {
+            int changed = 0;
+            for (int block = 0; block < now.length; block += 8) {
+                int end = Math.min(block + 8, now.length);
+                long any = 0;
+                for (int i = block; i < end; i++) {
+                    any |= now[i] ^ before[i];
+                }
+                if (any == 0) {
+                    continue; // most of a quiet board is skipped 8 words at a time
+                }
+                for (int i = block; i < end; i++) {
+                    // every word is written, but only counted if it changed. On a busy board this is much quicker than
+                    // an if, because the CPU can't guess which words changed
+                    long flips = now[i] ^ before[i];
+                    changedIndexes[changed] = i;
+                    changedFlips[changed] = flips;
+                    changed += (int) ((flips | -flips) >>> 63);
+                }
+            }
+            Segment last = segments.peekLast();
+            if (last.deltaBytes + DELTA_OVERHEAD + changed * 12L > keyframeBytes) {
+                // the deltas of the segment would take more memory than a keyframe, and going through all of them
+                // would be slower than copying one, so a keyframe is kept instead of the delta
+                startSegment(generation, now);
+            } else {
+                Delta delta = new Delta(Arrays.copyOf(changedIndexes, changed), Arrays.copyOf(changedFlips, changed));
+                last.deltas.add(delta);
+                last.deltaBytes += delta.bytes();
+                bytes += delta.bytes();
+                if (last.deltas.size() >= keyframeEvery) {
+                    // the next segment starts at this generation too, so the generations either side of the keyframe
+                    // can still be reached from each other through the delta
+                    startSegment(generation, now);
+                }
+            }
+            for (int k = 0; k < changed; k++) { // only the words that changed have to be copied into the cursor
+                before[changedIndexes[k]] = now[changedIndexes[k]];
+            }
+        }
+        cursorGeneration = generation;
+        evict();
+    }
+
+    private void startSegment(long generation, long[] words) {
+        long[] keyframe = spareKeyframe != null ? spareKeyframe : new long[words.length];
+        spareKeyframe = null;
+        System.arraycopy(words, 0, keyframe, 0, words.length);
+        segments.addLast(new Segment(generation, keyframe));
+        bytes += keyframeBytes;
+    }
+
+    // forgets every generation from 'generation' onwards
+    private void forgetFrom(long generation) {
+        while (!segments.isEmpty() && segments.peekLast().start >= generation) {
+            Segment dropped = segments.removeLast();
+            bytes -= keyframeBytes + dropped.deltaBytes;
+        }
+        Segment last = segments.peekLast();
+        if (last != null) {
+            while (last.end() >= generation) { // the delta into the last generation kept is at deltas.size() - 1
+                Delta dropped = last.deltas.remove(last.deltas.size() - 1);
+                last.deltaBytes -= dropped.bytes();
+                bytes -= dropped.bytes();
+            }
+        }
+        if (cursorGeneration >= generation) {
+            cursorGeneration = -1;
+        }
+    }
+
+    // throws away the oldest segments until the history fits in maxBytes. The newest segment is always kept
+    private void evict() {
+        while (bytes > maxBytes && segments.size() > 1) {
+            Segment dropped = segments.removeFirst();
+            bytes -= keyframeBytes + dropped.deltaBytes;
+            spareKeyframe = dropped.keyframe;
+            if (cursorGeneration < segments.peekFirst().start) {
+                cursorGeneration = -1;
+            }
+        }
+    }
+
+    // whether the board at 'generation' is kept
+    public boolean contains(long generation) {
+        return !segments.isEmpty() && generation >= getFirstGeneration() && generation <= getLastGeneration() && segmentOf(generation) != null;
+    }
+
+    // the oldest generation kept, or -1 if nothing is kept
+    public long getFirstGeneration() {
+        return segments.isEmpty() ? -1 : segments.peekFirst().start;
+    }
+
+    // the newest generation kept, or -1 if nothing is kept
+    public long getLastGeneration() {
+        return segments.isEmpty() ? -1 : segments.peekLast().end();
+    }
+
+    // the amount of memory the keyframes and deltas take, in bytes
+    public long getBytes() {
+        return bytes;
+    }
+
+    public int getKeyframeCount() {
+        return segments.size();
+    }
+
+    // forgets everything
+    public void clear() {
+        segments.clear();
+        bytes = 0;
+        cursorGeneration = -1;
+    }
+
+    /* Returns the board at 'generation', which has to be kept (see contains()). The grid returned belongs to the history
+     * and is changed by the next seek() or record(), so it should be copied if it is needed for longer.
+     */
+    public BitGrid seek(long generation) {
+        Segment segment = segmentOf(generation);
+        if (segment == null) {
+            throw new IllegalArgumentException("Generation " + generation + " isn't in the history (it has " + describeRange() + ")");
+        }
+        Segment next = null; // the segment after, if it starts where this one ends (so its keyframe is this segment's last generation)
+        boolean found = false;
+        for (Segment s : segments) {
+            if (found) {
+                next = s.start == segment.end() ? s : null;
+                break;
+            }
+            found = s == segment;
+        }
+        // the amount of words each way would touch
+        int offset = (int) (generation - segment.start);
+        long fromKeyframe = keyframeBytes / 8 + countWords(segment, 0, offset);
+        long fromNext = next == null ? Long.MAX_VALUE : keyframeBytes / 8 + countWords(segment, offset, segment.deltas.size());
+        long fromCursor = Long.MAX_VALUE;
+        if (cursorGeneration >= segment.start && cursorGeneration <= segment.end()) {
+            int cursorOffset = (int) (cursorGeneration - segment.start);
+            fromCursor = countWords(segment, Math.min(offset, cursorOffset), Math.max(offset, cursorOffset));
+        }
+        long[] words = cursor.getWords();
+        if (fromCursor <= fromKeyframe && fromCursor <= fromNext) {
+            int cursorOffset = (int) (cursorGeneration - segment.start);
+            apply(segment, Math.min(offset, cursorOffset), Math.max(offset, cursorOffset), words);
+        } else if (fromKeyframe <= fromNext) {
+            System.arraycopy(segment.keyframe, 0, words, 0, words.length);
+            apply(segment, 0, offset, words);
+        } else {
+            System.arraycopy(next.keyframe, 0, words, 0, words.length);
+            apply(segment, offset, segment.deltas.size(), words);
+        }
+        cursorGeneration = generation;
+        return cursor;
+    }
+
+    // the newest segment that has 'generation' in it, or null if none do
+    private Segment segmentOf(long generation) {
+        Iterator<Segment> newestFirst = segments.descendingIterator();
+        while (newestFirst.hasNext()) {
+            Segment segment = newestFirst.next();
+            if (generation >= segment.start && generation <= segment.end()) {
+                return segment;
+            }
+            if (generation > segment.end()) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    // the amount of words in deltas 'from' to 'to' of the segment
+    private static long countWords(Segment segment, int from, int to) {
+        long words = 0;
+        for (int d = from; d < to; d++) {
+            words += segment.deltas.get(d).indexes.length;
+        }
+        return words;
+    }
+
+    // flips the cells of deltas 'from' to 'to'. The order doesn't matter, so this works for going back as well as forward
+    private static void apply(Segment segment, int from, int to, long[] words) {
+        for (int d = from; d < to; d++) {
+            Delta delta = segment.deltas.get(d);
+            for (int k = 0; k < delta.indexes.length; k++) {
+                words[delta.indexes[k]] ^= delta.flips[k];
+            }
+        }
+    }
+
+    private String describeRange() {
+        return segments.isEmpty() ? "nothing" : "generations " + getFirstGeneration() + " to " + getLastGeneration();
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * An engine for Generations rules, where a cell that dies goes through some dying states before it is dead (see Rule).
+ *
+ * Which cells are alive is kept in a BitGrid like PackedEngine, and the births and survivals are worked out with the
+ * same word at a time kernel (only live cells count as neighbours, so the dying states don't change the counts).
+ * The dying cells are kept in a second BitGrid, which is used to stop them being born, and the state of each cell is
+ * kept in a byte array. Only the bytes of cells that are dying (or have just started dying) are looked at each
+ * generation, so a board that is mostly dead or alive costs about the same as it would with PackedEngine.
+ * It works for normal rules too (they just have no dying states), but PackedEngine is quicker for those.
+ */
+
+package main.java;
+
+public class GenerationsEngine implements GridEngine {
+    private BitGrid grid; // the live cells (state 1)
+    private BitGrid nextGrid; // where the next generation of live cells is worked out
+    private final BitGrid dying; // the cells in state 2 or more
+    private final byte[] states; // the state of every cell, row after row
+    private final Rule rule;
+    private final Topology topology;
+    private final int width;
+    private final int height;
+
+    public GenerationsEngine(int width, int height, Rule rule) {
+        this(new BitGrid(width, height), rule);
+    }
+
+    // uses the cells in 'grid' as the live cells (the grid is not copied). Every other cell starts dead
+    public GenerationsEngine(BitGrid grid, Rule rule) {
+        this(grid, rule, Topology.DEAD);
+    }
+
+    public GenerationsEngine(BitGrid grid, Rule rule, Topology topology) {
+        this.grid = grid;
+        this.rule = rule;
+        this.topology = topology;
+        width = grid.getWidth();
+        height = grid.getHeight();
+        nextGrid = new BitGrid(width, height);
+        dying = new BitGrid(width, height);
+        states = new byte[Math.multiplyExact(width, height)];
+        for (int row = 0; row < height; row++) {
+            for (int column = 0; column < width; column++) {
+                if (grid.get(row, column)) {
+                    states[row * width + column] = 1;
+                }
+            }
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    // the live cells. This is the engine's own grid (not a copy), so it shouldn't be changed
+    @Override
+    public BitGrid getGrid() {
+        return grid;
+    }
+
+    // the live cells of the generation before (the grids are swapped after each generation)
+    @Override
+    public BitGrid getPreviousGrid() {
+        return nextGrid;
+    }
+
+    // the state of every cell, row after row (read them with '& 0xFF'). This is the engine's own array, not a copy
+    public byte[] getStates() {
+        return states;
+    }
+
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+
+    @Override
+    public Topology getTopology() {
+        return topology;
+    }
+
+    @Override
+    public boolean getCell(int row, int column) {
+        return grid.get(row, column);
+    }
+
+    @Override
+    public void setCell(int row, int column, boolean alive) {
+        setState(row, column, alive ? 1 : 0);
+    }
+
+    @Override
+    public int getState(int row, int column) {
+        return states[row * width + column] & 0xFF;
+    }
+
+    @Override
+    public void setState(int row, int column, int state) {
+        if (state < 0 || state >= rule.getStates()) {
+            throw new IllegalArgumentException(rule + " only has states 0 to " + (rule.getStates() - 1) + ", not " + state);
+        }
+        states[row * width + column] = (byte) state;
+        grid.set(row, column, state == 1);
+        dying.set(row, column, state > 1);
+    }
+
+    @Override
+    public void step(long generations) {
+        for (long t = 0; t < generations; t++) {
+            stepOnce();
+        }
+    }
+
+    private void stepOnce() {
+        grid.step(nextGrid, rule, topology);
+        long[] alive = grid.getWords();
+        long[] next = nextGrid.getWords();
+        long[] dyingWords = dying.getWords();
+        int wordsPerRow = grid.getWordsPerRow();
+        int lastState = rule.getStates() - 1;
+        for (int i = 0; i < next.length; i++) {
+            next[i] &= ~dyingWords[i]; // a dying cell can't be born
+            long born = next[i] & ~alive[i];
+            long ageing = dyingWords[i] | (alive[i] & ~next[i]); // the cells that were dying, and the live cells that didn't survive
+            if ((born | ageing) == 0) {
+                continue; // nearly every word on a settled board
+            }
+            int start = (i / wordsPerRow) * width + (i % wordsPerRow) * BitGrid.WORD_SIZE; // the index in 'states' of bit 0 of this word
+            for (long bits = born; bits != 0; bits &= bits - 1) {
+                states[start + Long.numberOfTrailingZeros(bits)] = 1;
+            }
+            long stillDying = 0;
+            for (long bits = ageing; bits != 0; bits &= bits - 1) {
+                int bit = Long.numberOfTrailingZeros(bits);
+                int state = states[start + bit] & 0xFF;
+                state = state >= lastState ? 0 : state + 1; // a live cell (state 1) goes to state 2, the last state goes to dead
+                states[start + bit] = (byte) state;
+                if (state != 0) {
+                    stillDying |= 1L << bit;
+                }
+            }
+            dyingWords[i] = stillDying;
+        }
+        BitGrid old = grid;
+        grid = nextGrid;
+        nextGrid = old;
+    }
+
+    @Override
+    public long getPopulation() {
+        return grid.population();
+    }
+}
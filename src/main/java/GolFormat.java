@@ -0,0 +1,303 @@
+/**
+ * Reads and writes .gol files without any of the menus, so they can be used by other programs (and timed by the benchmarks).
+ * This is an example of the layout of a .gol file:
+ * 4
+ * 0110
+ * 0000
+ * 0100
+ * 1001
+ * The first line is the grid size and the rest of the lines are the rows. '0' means the cell is dead and '1' means the cell is alive.
+ * With a Generations rule (see Rule), the digits 2 to 9 are cells that are dying, in that state.
+ *
+ * Files can be far too big to read in as Strings (a 100000x100000 board is 10GB), so the file is memory mapped a
+ * window at a time and the characters are turned straight into the words of a BitGrid. The only memory used apart
+ * from the grid itself is one small buffer, whatever the size of the file.
+ */
+
+package main.java;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class GolFormat {
+    public static final long WINDOW_SIZE = 64L << 20; // how much of the file is mapped at a time
+    public static final int BUFFER_SIZE = 64 << 10; // the size of the buffer the bytes are copied into before they are looked at
+
+    // reads 8 bytes of a byte[] as one long, with the first byte as the bottom 8 bits
+    private static final VarHandle EIGHT_BYTES = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // for every 8 cells (a byte), the 8 characters they are written as, as one long
+    private static final long[] CHARACTERS = new long[256];
+
+    static {
+        for (int cells = 0; cells < 256; cells++) {
+            long characters = 0;
+            for (int bit = 0; bit < 8; bit++) {
+                characters |= (long) ('0' + ((cells >>> bit) & 1)) << (bit * 8);
+            }
+            CHARACTERS[cells] = characters;
+        }
+    }
+
+    private GolFormat() { // this class is only a place for the static methods, so it can't be made
+    }
+
+    /* Reads the cells from a .gol file. A NoSuchFileException means the file isn't there, any other IOException means
+     * it couldn't be read or it isn't a valid .gol file. As before, anything past the end of a row (or past the last row) is ignored.
+     */
+    public static BitGrid read(Path file) throws IOException {
+        return read(file, null).finish();
+    }
+
+    /* Reads a .gol file into a Simulation that uses 'rule' (.gol files don't say which rule they are for).
+     * If the rule is a Generations rule, the file can have dying cells in it as well.
+     */
+    public static Simulation load(Path file, Rule rule) throws IOException {
+        Reader reader = read(file, rule.isGenerations() ? new CellMap() : null);
+        Simulation simulation = new Simulation(reader.finish(), rule);
+        CellMap dying = reader.dying;
+        for (int slot = 0; dying != null && slot < dying.capacity(); slot++) {
+            if (dying.isUsed(slot)) {
+                long key = dying.keyAt(slot);
+                if (dying.valueAt(slot) >= rule.getStates()) {
+                    throw new IOException(file + " has a cell in state " + dying.valueAt(slot) + " but " + rule + " only has " + rule.getStates() + " states");
+                }
+                simulation.setState(CellMap.row(key), CellMap.column(key), dying.valueAt(slot));
+            }
+        }
+        return simulation;
+    }
+
+    /* The width and height of the board in the file (both the grid size, since .gol grids are square), read from just
+     * the first line. This lets the size be checked before the grid is made.
+     */
+    public static int[] readSize(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            Reader reader = new Reader(file, null);
+            int b;
+            while (reader.readingSize && (b = in.read()) != -1) {
+                if (b == '\n') {
+                    break; // the grid would be made if the Reader saw the end of the line
+                }
+                reader.readSize((byte) b);
+            }
+            if (!reader.sizeHasDigits || reader.gridSize < 1) {
+                throw new IOException(file + " doesn't start with a grid size");
+            }
+            return new int[] {reader.gridSize, reader.gridSize};
+        }
+    }
+
+    // reads the file through a Reader. If 'dying' isn't null, the cells with digits from 2 to 9 are put in it
+    private static Reader read(Path file, CellMap dying) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Reader reader = new Reader(file, dying);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long size = channel.size();
+            for (long position = 0; position < size && !reader.isDone(); position += WINDOW_SIZE) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, size - position));
+                while (window.hasRemaining() && !reader.isDone()) {
+                    int length = Math.min(buffer.length, window.remaining());
+                    window.get(buffer, 0, length);
+                    reader.accept(buffer, length);
+                }
+            }
+            return reader;
+        }
+    }
+
+    // writes the cells of 'grid' to 'file' (which is replaced if it already exists). The grid has to be square
+    public static void write(Path file, BitGrid grid) throws IOException {
+        if (grid.getWidth() != grid.getHeight()) {
+            throw new IllegalArgumentException(".gol files can only hold square grids, not " + grid.getWidth() + "x" + grid.getHeight());
+        }
+        int gridSize = grid.getWidth();
+        long[] words = grid.getWords();
+        int wordsPerRow = grid.getWordsPerRow();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            byte[] bytes = new byte[BUFFER_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes); // the buffer and 'bytes' share the same memory
+            buffer.put((gridSize + "\n").getBytes()); // the first line is the grid size
+            for (int i = 0; i < gridSize; i++) { // then the rest are just rows of 1s and 0s to show whether the cells are on or off
+                for (int w = 0; w < wordsPerRow; w++) {
+                    long word = words[i * wordsPerRow + w];
+                    int cells = Math.min(BitGrid.WORD_SIZE, gridSize - w * BitGrid.WORD_SIZE);
+                    if (buffer.remaining() < BitGrid.WORD_SIZE + 1) { // room for a whole word and the new line
+                        flush(channel, buffer);
+                    }
+                    int position = buffer.position();
+                    int bit = 0;
+                    for (; bit + 8 <= cells; bit += 8) { // 8 cells at a time
+                        EIGHT_BYTES.set(bytes, position + bit, CHARACTERS[(int) (word >>> bit) & 0xFF]);
+                    }
+                    for (; bit < cells; bit++) {
+                        bytes[position + bit] = (byte) ('0' + ((word >>> bit) & 1));
+                    }
+                    buffer.position(position + cells);
+                }
+                buffer.put((byte) '\n'); // adds a new line after each row
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    /* Writes the board of 'simulation' to 'file'. Boards with a Generations rule are written with a digit for the state
+     * of each cell, so the rule can't have more than 10 states. Other boards are written the same as write(Path, BitGrid).
+     */
+    public static void write(Path file, Simulation simulation) throws IOException {
+        if (!simulation.getRule().isGenerations()) {
+            write(file, simulation.snapshot());
+            return;
+        }
+        if (simulation.getRule().getStates() > 10) {
+            throw new IllegalArgumentException(".gol files can only hold 10 states, but " + simulation.getRule() + " has " + simulation.getRule().getStates());
+        }
+        if (simulation.getWidth() != simulation.getHeight()) {
+            throw new IllegalArgumentException(".gol files can only hold square grids, not " + simulation.getWidth() + "x" + simulation.getHeight());
+        }
+        int gridSize = simulation.getWidth();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            buffer.put((gridSize + "\n").getBytes());
+            for (int i = 0; i < gridSize; i++) {
+                for (int j = 0; j < gridSize; j++) {
+                    if (buffer.remaining() < 2) { // room for the cell and the new line
+                        flush(channel, buffer);
+                    }
+                    buffer.put((byte) ('0' + simulation.getState(i, j)));
+                }
+                buffer.put((byte) '\n');
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // turns the bytes of a .gol file into a BitGrid. The bytes can be given to it in pieces of any size
+    private static class Reader {
+        private final Path file; // only used for the error messages
+        private final CellMap dying; // the dying cells and their states (null if there can't be any)
+        private int gridSize = 0; // read from the first line
+        private boolean readingSize = true; // whether it is still on the first line
+        private boolean sizeHasDigits = false;
+        private BitGrid grid;
+        private long[] words;
+        private int row = 0; // the row being read
+        private int column = 0; // the column being read
+        private long word = 0; // the cells of the word being read, which is put into 'words' when it is full (or the row ends)
+        private boolean skipping = false; // whether the rest of the row is being skipped (it is longer than gridSize)
+
+        Reader(Path file, CellMap dying) {
+            this.file = file;
+            this.dying = dying;
+        }
+
+        boolean isDone() {
+            return grid != null && row == gridSize;
+        }
+
+        void accept(byte[] bytes, int length) throws IOException {
+            int k = 0;
+            while (k < length && !isDone()) {
+                // if the next 8 bytes are all '0' or '1' (and they fit in the row and the word), they are done at once
+                if (!readingSize && !skipping && k + 8 <= length && gridSize - column >= 8 && (column & 63) <= 56) {
+                    long eight = (long) EIGHT_BYTES.get(bytes, k);
+                    if ((eight & 0xFEFEFEFEFEFEFEFEL) == 0x3030303030303030L) { // every byte is 0x30 ('0') or 0x31 ('1')
+                        // the bottom bit of each byte is moved to the top byte, so the 8 cells end up as 8 bits in a row
+                        long cells = ((eight & 0x0101010101010101L) * 0x0102040810204080L) >>> 56;
+                        word |= cells << column;
+                        column += 8;
+                        k += 8;
+                        endOfCells();
+                        continue;
+                    }
+                }
+                byte b = bytes[k++];
+                if (readingSize) {
+                    readSize(b);
+                } else if (skipping) {
+                    if (b == '\n') {
+                        skipping = false;
+                        nextRow();
+                    }
+                } else if (b == '0' || b == '1') {
+                    word |= (long) (b - '0') << column; // shifting a long only uses the bottom 6 bits, so this is column % 64
+                    column++;
+                    endOfCells();
+                } else if (b >= '2' && b <= '9' && dying != null) { // a dying cell, which is dead in 'grid'
+                    dying.put(CellMap.key(row, column), b - '0');
+                    column++;
+                    endOfCells();
+                } else if (b == '\n' || b == '\r') { // a line ends early
+                    throw new IOException("Row " + (row + 1) + " of " + file + " is too short");
+                } else { // if there are any other characters (not '1' or '0')
+                    throw new IOException("Row " + (row + 1) + " of " + file + " has a '" + (char) b + "' in it");
+                }
+            }
+        }
+
+        // called after some cells have been added to 'word'
+        private void endOfCells() {
+            if ((column & 63) == 0 || column == gridSize) { // the word is full (or it is the end of the row)
+                words[row * grid.getWordsPerRow() + ((column - 1) >>> 6)] = word;
+                word = 0;
+            }
+            if (column == gridSize) {
+                skipping = true; // anything else on the line is ignored
+            }
+        }
+
+        private void readSize(byte b) throws IOException {
+            if (b >= '0' && b <= '9') {
+                gridSize = gridSize * 10 + (b - '0');
+                sizeHasDigits = true;
+                if (gridSize > 1_000_000_000) {
+                    throw new IOException(file + " has a grid size that is too big");
+                }
+            } else if (b == '\n') {
+                if (!sizeHasDigits || gridSize < 1) {
+                    throw new IOException(file + " doesn't start with a grid size");
+                }
+                grid = new BitGrid(gridSize, gridSize); // the first line in a .gol file is the grid size
+                words = grid.getWords();
+                readingSize = false;
+            } else if (b != ' ' && b != '\r' && b != '\t') {
+                throw new IOException(file + " doesn't start with a grid size");
+            }
+        }
+
+        private void nextRow() {
+            row++;
+            column = 0;
+        }
+
+        BitGrid finish() throws IOException {
+            if (skipping && row == gridSize - 1) { // the last row doesn't have to have a new line after it
+                nextRow();
+            }
+            if (grid == null) {
+                throw new IOException(file + " doesn't start with a grid size");
+            }
+            if (!isDone()) {
+                throw new IOException(file + " only has " + row + " rows but should have " + gridSize);
+            }
+            return grid;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * An engine that keeps its live cells in a BitGrid that is the same size as the board, and keeps the grid of the
+ * generation before as well (PackedEngine and the engines based on it, and GenerationsEngine).
+ * Having both grids lets other code (like CycleDetector) find out which cells changed in the last generation by
+ * comparing them a word at a time, without the engine having to keep track of it.
+ */
+
+package main.java;
+
+public interface GridEngine extends Engine {
+    // the live cells of the current generation. This is the engine's own grid (not a copy), so it shouldn't be changed
+    BitGrid getGrid();
+
+    // the live cells of the generation before the current one. This is only that generation straight after step(1):
+    // cells changed with setCell() (or anything before the first step) don't show up in it
+    BitGrid getPreviousGrid();
+}
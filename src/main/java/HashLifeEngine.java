@@ -0,0 +1,407 @@
+/**
+ * An engine that uses the HashLife algorithm, so it can jump huge amounts of generations (2^30 and more) at once.
+ *
+ * The world is stored as a quadtree. A node of level k is a square of 2^k by 2^k cells made out of four nodes of
+ * level k - 1 (nw, ne, sw and se). Level 0 nodes are single cells. Every node is canonical: there is only ever one node
+ * with the same four children, which is found through the node table (this is called hash consing). That means a
+ * pattern that appears lots of times (like empty space) is only stored once, and anything worked out for a node can be
+ * remembered in the node itself and reused every time the node appears again.
+ *
+ * The result of a node of level k is its centre square (level k - 1) advanced 2^j generations, where j can be up to k - 2.
+ * It is worked out from the results of smaller nodes, so for regular patterns jumping n generations takes time roughly
+ * proportional to log(n).
+ *
+ * Unlike PackedEngine, this world has no edges. The cells go on forever in every direction.
+ * When the node table gets too big, every node that isn't part of the current world is thrown away (see collectGarbage()).
+ * Any rule can be used as long as cells aren't born with 0 neighbours (empty space has to stay empty) and it isn't a
+ * Generations rule.
+ */
+
+package main.java;
+import java.util.Arrays;
+
+public class HashLifeEngine implements Engine {
+    public static final int DEFAULT_MAX_NODES = 1 << 21; // when the node table has more nodes than this, garbage is collected
+    public static final int MAX_LEVEL = 62; // positions are longs, so the world can't be bigger than this
+
+    private static final Node DEAD = new Node(0, 0); // the two level 0 nodes
+    private static final Node ALIVE = new Node(1, 1);
+
+    private Node[] table = new Node[1 << 16]; // the node table. Nodes with the same hash are chained together through Node.next
+    private int nodeCount = 0; // the amount of nodes in the table
+    private int maxNodes; // garbage is collected when nodeCount goes above this
+    private Node[] empty = new Node[MAX_LEVEL + 1]; // the empty node for each level
+    private Node root; // the whole world. The centre of the root is the position (0, 0)
+    private final Rule rule;
+
+    public HashLifeEngine() {
+        this(DEFAULT_MAX_NODES);
+    }
+
+    public HashLifeEngine(int maxNodes) {
+        this(maxNodes, Rule.CONWAY);
+    }
+
+    public HashLifeEngine(int maxNodes, Rule rule) {
+        if (rule.bornFromNothing() || rule.isGenerations()) {
+            throw new IllegalArgumentException(rule + " can't be used in a world with no edges");
+        }
+        this.maxNodes = maxNodes;
+        this.rule = rule;
+        root = emptyNode(3);
+    }
+
+    // makes a world with the cells from 'grid'. Row 0, column 0 of the grid is cell (0, 0) in the world
+    public HashLifeEngine(BitGrid grid) {
+        this(grid, Rule.CONWAY);
+    }
+
+    public HashLifeEngine(BitGrid grid, Rule rule) {
+        this(DEFAULT_MAX_NODES, rule);
+        int size = Math.max(grid.getWidth(), grid.getHeight());
+        int level = 3;
+        while ((1L << (level - 1)) < size) { // the grid has to fit in the south east quarter of the root
+            level++;
+        }
+        Node quarter = fromGrid(grid, level - 1, 0, 0);
+        Node space = emptyNode(level - 1);
+        root = join(space, space, space, quarter);
+    }
+
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+
+    // the level of the root (the world is 2^level cells wide)
+    public int getLevel() {
+        return root.level;
+    }
+
+    // the amount of nodes in the node table
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    @Override
+    public long getPopulation() {
+        return root.population;
+    }
+
+    @Override
+    public boolean getCell(int row, int column) {
+        long half = 1L << (root.level - 1);
+        if (row < -half || row >= half || column < -half || column >= half) {
+            return false; // it's outside of the world, so it has never been alive
+        }
+        Node node = root;
+        long y = row + half; // the position of the cell from the top left corner of 'node'
+        long x = column + half;
+        while (node.level > 0) {
+            if (node.population == 0) {
+                return false;
+            }
+            long quarter = 1L << (node.level - 1);
+            boolean south = y >= quarter;
+            boolean east = x >= quarter;
+            node = south ? (east ? node.se : node.sw) : (east ? node.ne : node.nw);
+            if (south) {
+                y -= quarter;
+            }
+            if (east) {
+                x -= quarter;
+            }
+        }
+        return node == ALIVE;
+    }
+
+    @Override
+    public void setCell(int row, int column, boolean alive) {
+        while (!contains(row, column)) {
+            root = expand(root);
+        }
+        long half = 1L << (root.level - 1);
+        root = setCell(root, row + half, column + half, alive);
+    }
+
+    /* Advances the world 'generations' generations. Each bit of 'generations' that is set is done as one jump of 2^bit
+     * generations, so this takes about as many jumps as there are bits in 'generations'.
+     */
+    @Override
+    public void step(long generations) {
+        for (int j = 0; generations != 0; j++, generations >>>= 1) {
+            if ((generations & 1) != 0) {
+                jump(j);
+                if (nodeCount > maxNodes) {
+                    collectGarbage();
+                }
+            }
+        }
+    }
+
+    // advances the world 2^j generations
+    private void jump(int j) {
+        // the root is made bigger until the pattern is in the middle of it and the root is big enough to jump that far
+        while (root.level < j + 2 || !isCentred(root)) {
+            root = expand(root);
+        }
+        // then once more, so that the pattern can't grow out of the centre square (the part that the result covers)
+        root = expand(root);
+        if (root.level > MAX_LEVEL) {
+            throw new IllegalStateException("The pattern has grown too big for the world");
+        }
+        root = result(root, j);
+    }
+
+    /* Throws away every node that isn't part of the current world, as well as all the remembered results.
+     * The nodes that are kept are still canonical, because if a node is kept, all of its children are kept too.
+     * If most of the nodes are still in use afterwards, maxNodes is doubled so that this doesn't happen every step.
+     */
+    public void collectGarbage() {
+        Node[] oldTable = table;
+        table = new Node[oldTable.length];
+        nodeCount = 0;
+        for (Node node : oldTable) {
+            for (; node != null; node = node.next) {
+                node.result = null; // results are thrown away because they could point to nodes that are no longer in the table
+                node.marked = false;
+            }
+        }
+        Arrays.fill(empty, null);
+        keep(root);
+        if (nodeCount > maxNodes / 2) {
+            maxNodes *= 2;
+        }
+    }
+
+    // puts 'node' and everything underneath it back into the table
+    private void keep(Node node) {
+        if (node.level == 0 || node.marked) {
+            return;
+        }
+        node.marked = true;
+        keep(node.nw);
+        keep(node.ne);
+        keep(node.sw);
+        keep(node.se);
+        insert(node);
+    }
+
+    /* The centre of 'node' (level k) advanced 2^j generations, where j <= k - 2. The answer is remembered in the node.
+     * The node is split into 9 overlapping squares of level k - 1. If j is as big as it can be (k - 2), each square
+     * is advanced 2^(k - 3) generations, put back together into 4 squares and advanced 2^(k - 3) generations again.
+     * If j is smaller, the 9 squares are only cut down to their centres before being put together and advanced 2^j.
+     */
+    private Node result(Node node, int j) {
+        if (node.result != null && node.resultStep == j) {
+            return node.result;
+        }
+        Node answer;
+        if (node.population == 0) {
+            answer = emptyNode(node.level - 1);
+        } else if (node.level == 2) {
+            answer = resultOfLevel2(node);
+        } else {
+            Node n00 = node.nw;
+            Node n01 = join(node.nw.ne, node.ne.nw, node.nw.se, node.ne.sw);
+            Node n02 = node.ne;
+            Node n10 = join(node.nw.sw, node.nw.se, node.sw.nw, node.sw.ne);
+            Node n11 = join(node.nw.se, node.ne.sw, node.sw.ne, node.se.nw);
+            Node n12 = join(node.ne.sw, node.ne.se, node.se.nw, node.se.ne);
+            Node n20 = node.sw;
+            Node n21 = join(node.sw.ne, node.se.nw, node.sw.se, node.se.sw);
+            Node n22 = node.se;
+
+            boolean fullSpeed = j == node.level - 2;
+            Node r00 = fullSpeed ? result(n00, j - 1) : centre(n00);
+            Node r01 = fullSpeed ? result(n01, j - 1) : centre(n01);
+            Node r02 = fullSpeed ? result(n02, j - 1) : centre(n02);
+            Node r10 = fullSpeed ? result(n10, j - 1) : centre(n10);
+            Node r11 = fullSpeed ? result(n11, j - 1) : centre(n11);
+            Node r12 = fullSpeed ? result(n12, j - 1) : centre(n12);
+            Node r20 = fullSpeed ? result(n20, j - 1) : centre(n20);
+            Node r21 = fullSpeed ? result(n21, j - 1) : centre(n21);
+            Node r22 = fullSpeed ? result(n22, j - 1) : centre(n22);
+
+            int nextJ = fullSpeed ? j - 1 : j; // at full speed, half of the generations have already been done
+            answer = join(
+                    result(join(r00, r01, r10, r11), nextJ),
+                    result(join(r01, r02, r11, r12), nextJ),
+                    result(join(r10, r11, r20, r21), nextJ),
+                    result(join(r11, r12, r21, r22), nextJ));
+        }
+        node.result = answer;
+        node.resultStep = j;
+        return answer;
+    }
+
+    // a level 2 node is 4x4 cells. This works out the middle 2x2 cells one generation later by counting neighbours
+    private Node resultOfLevel2(Node node) {
+        int cells = 0; // bit (row * 4 + column) is the cell at that position
+        for (int row = 0; row < 4; row++) {
+            for (int column = 0; column < 4; column++) {
+                Node quarter = row < 2 ? (column < 2 ? node.nw : node.ne) : (column < 2 ? node.sw : node.se);
+                Node cell = (row & 1) == 0 ? ((column & 1) == 0 ? quarter.nw : quarter.ne) : ((column & 1) == 0 ? quarter.sw : quarter.se);
+                if (cell == ALIVE) {
+                    cells |= 1 << (row * 4 + column);
+                }
+            }
+        }
+        return join(nextCell(cells, 1, 1), nextCell(cells, 1, 2), nextCell(cells, 2, 1), nextCell(cells, 2, 2));
+    }
+
+    private Node nextCell(int cells, int row, int column) {
+        int alive = 0;
+        for (int countI = -1; countI < 2; countI++) {
+            for (int countJ = -1; countJ < 2; countJ++) {
+                if (countI != 0 || countJ != 0) {
+                    alive += (cells >>> ((row + countI) * 4 + column + countJ)) & 1;
+                }
+            }
+        }
+        boolean isAlive = (cells >>> (row * 4 + column) & 1) != 0;
+        return rule.isAliveNext(isAlive, alive) ? ALIVE : DEAD;
+    }
+
+    // the middle square of 'node', half as wide
+    private Node centre(Node node) {
+        return join(node.nw.se, node.ne.sw, node.sw.ne, node.se.nw);
+    }
+
+    // a node twice as wide with 'node' in the middle and empty space around it
+    private Node expand(Node node) {
+        Node space = emptyNode(node.level - 1);
+        return join(
+                join(space, space, space, node.nw),
+                join(space, space, node.ne, space),
+                join(space, node.sw, space, space),
+                join(node.se, space, space, space));
+    }
+
+    // whether all of the live cells in 'node' are in its middle square
+    private boolean isCentred(Node node) {
+        return node.population == centre(node).population;
+    }
+
+    private boolean contains(int row, int column) {
+        long half = 1L << (root.level - 1);
+        return row >= -half && row < half && column >= -half && column < half;
+    }
+
+    // returns a copy of 'node' with the cell at (y, x) changed (measured from the top left of the node)
+    private Node setCell(Node node, long y, long x, boolean alive) {
+        if (node.level == 0) {
+            return alive ? ALIVE : DEAD;
+        }
+        long quarter = 1L << (node.level - 1);
+        if (y < quarter) {
+            if (x < quarter) {
+                return join(setCell(node.nw, y, x, alive), node.ne, node.sw, node.se);
+            }
+            return join(node.nw, setCell(node.ne, y, x - quarter, alive), node.sw, node.se);
+        }
+        if (x < quarter) {
+            return join(node.nw, node.ne, setCell(node.sw, y - quarter, x, alive), node.se);
+        }
+        return join(node.nw, node.ne, node.sw, setCell(node.se, y - quarter, x - quarter, alive));
+    }
+
+    // makes a node of 'level' from the part of 'grid' that starts at (row, column). Anything off the grid is dead
+    private Node fromGrid(BitGrid grid, int level, int row, int column) {
+        if (row >= grid.getHeight() || column >= grid.getWidth()) {
+            return emptyNode(level);
+        }
+        if (level == 0) {
+            return grid.get(row, column) ? ALIVE : DEAD;
+        }
+        int quarter = 1 << (level - 1);
+        return join(
+                fromGrid(grid, level - 1, row, column),
+                fromGrid(grid, level - 1, row, column + quarter),
+                fromGrid(grid, level - 1, row + quarter, column),
+                fromGrid(grid, level - 1, row + quarter, column + quarter));
+    }
+
+    private Node emptyNode(int level) {
+        if (level == 0) {
+            return DEAD;
+        }
+        if (empty[level] == null) {
+            Node child = emptyNode(level - 1);
+            empty[level] = join(child, child, child, child);
+        }
+        return empty[level];
+    }
+
+    // finds the canonical node with these four children, making it if it doesn't exist yet
+    private Node join(Node nw, Node ne, Node sw, Node se) {
+        int hash = hash(nw, ne, sw, se);
+        int index = hash & (table.length - 1);
+        for (Node node = table[index]; node != null; node = node.next) {
+            if (node.nw == nw && node.ne == ne && node.sw == sw && node.se == se) {
+                return node;
+            }
+        }
+        Node node = new Node(nw, ne, sw, se, hash);
+        insert(node);
+        return node;
+    }
+
+    private void insert(Node node) {
+        if (nodeCount >= table.length * 3 / 4) { // the table is made bigger so that the chains stay short
+            Node[] oldTable = table;
+            table = new Node[oldTable.length * 2];
+            for (Node old : oldTable) {
+                while (old != null) {
+                    Node next = old.next;
+                    int index = old.hash & (table.length - 1);
+                    old.next = table[index];
+                    table[index] = old;
+                    old = next;
+                }
+            }
+        }
+        int index = node.hash & (table.length - 1);
+        node.next = table[index];
+        table[index] = node;
+        nodeCount++;
+    }
+
+    private static int hash(Node nw, Node ne, Node sw, Node se) {
+        int hash = nw.hash;
+        hash = hash * 31 + ne.hash;
+        hash = hash * 31 + sw.hash;
+        hash = hash * 31 + se.hash;
+        hash *= 0x9E3779B9; // spreads the bits out so that the low bits (which pick the chain) are well mixed
+        return hash ^ (hash >>> 16);
+    }
+
+    private static class Node {
+        final Node nw, ne, sw, se; // the four quarters (null for level 0)
+        final int level;
+        final long population; // the amount of live cells in this node
+        final int hash;
+        Node result; // the remembered result (see result())
+        int resultStep; // the 'j' that 'result' was worked out for
+        Node next; // the next node in the same chain of the node table
+        boolean marked; // used by collectGarbage() so that a node is only put back once
+
+        // a level 0 node (a single cell)
+        Node(int population, int hash) {
+            nw = ne = sw = se = null;
+            level = 0;
+            this.population = population;
+            this.hash = hash;
+        }
+
+        Node(Node nw, Node ne, Node sw, Node se, int hash) {
+            this.nw = nw;
+            this.ne = ne;
+            this.sw = sw;
+            this.se = se;
+            level = nw.level + 1;
+            population = nw.population + ne.population + sw.population + se.population;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * The standard engine. It keeps two BitGrids: the current generation and a spare one that the next generation is
+ * worked out into. After each generation the two are swapped, so nothing has to be copied or allocated while stepping.
+ * It can use any rule where cells are only alive or dead (not Generations rules, see GenerationsEngine for those).
+ */
+
+package main.java;
+
+public class PackedEngine implements GridEngine {
+    protected BitGrid grid; // the current generation
+    protected BitGrid nextGrid; // where the next generation is worked out
+    protected final Rule rule;
+    protected final Topology topology; // what is past the edges of the grid
+
+    public PackedEngine(int width, int height) {
+        this(new BitGrid(width, height));
+    }
+
+    // uses 'grid' as the starting generation (the grid is not copied)
+    public PackedEngine(BitGrid grid) {
+        this(grid, Rule.CONWAY);
+    }
+
+    public PackedEngine(BitGrid grid, Rule rule) {
+        this(grid, rule, Topology.DEAD);
+    }
+
+    public PackedEngine(BitGrid grid, Rule rule, Topology topology) {
+        if (rule.isGenerations()) {
+            throw new IllegalArgumentException(rule + " has more than two states, so it needs a GenerationsEngine");
+        }
+        this.grid = grid;
+        this.rule = rule;
+        this.topology = topology;
+        nextGrid = new BitGrid(grid.getWidth(), grid.getHeight());
+    }
+
+    public int getWidth() {
+        return grid.getWidth();
+    }
+
+    public int getHeight() {
+        return grid.getHeight();
+    }
+
+    // the current generation. This is the engine's own grid (not a copy), so changing it changes the engine
+    @Override
+    public BitGrid getGrid() {
+        return grid;
+    }
+
+    // after the grids are swapped, the spare grid has the generation before in it
+    @Override
+    public BitGrid getPreviousGrid() {
+        return nextGrid;
+    }
+
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+
+    @Override
+    public Topology getTopology() {
+        return topology;
+    }
+
+    @Override
+    public boolean getCell(int row, int column) {
+        return grid.get(row, column);
+    }
+
+    @Override
+    public void setCell(int row, int column, boolean alive) {
+        grid.set(row, column, alive);
+    }
+
+    @Override
+    public void step(long generations) {
+        for (long t = 0; t < generations; t++) {
+            stepOnce();
+            swap();
+        }
+    }
+
+    // works out the next generation into nextGrid
+    protected void stepOnce() {
+        grid.step(nextGrid, rule, topology);
+    }
+
+    // makes the generation that was just worked out the current one
+    protected void swap() {
+        BitGrid old = grid;
+        grid = nextGrid;
+        nextGrid = old;
+    }
+
+    @Override
+    public long getPopulation() {
+        return grid.population();
+    }
+}
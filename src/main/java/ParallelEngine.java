@@ -0,0 +1,94 @@
+/**
+ * The same as PackedEngine, but each generation is split up into horizontal bands of rows which are worked out on
+ * different threads at the same time (using a ForkJoinPool).
+ *
+ * Each band only reads from the current grid and only writes its own rows of the next grid, so the bands don't need to
+ * wait for each other. The generation ends when every band is finished (this is the barrier) and then the grids are swapped.
+ * Because every row is worked out with the same code as PackedEngine, the result is exactly the same as stepping on one thread.
+ */
+
+package main.java;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class ParallelEngine extends PackedEngine implements AutoCloseable {
+    public static final int MIN_BAND_ROWS = 16; // bands smaller than this spend more time being handed out than being worked out
+    public static final int BANDS_PER_THREAD = 4; // more bands than threads, so a thread that finishes early can take work from a slower one
+
+    private final ForkJoinPool pool; // the threads that the bands are worked out on
+    private final boolean ownsPool; // if the pool was made by this engine, it is shut down by close()
+    private final int bandRows; // the amount of rows in each band
+
+    // makes its own pool with 'threads' threads
+    public ParallelEngine(int width, int height, int threads) {
+        this(new BitGrid(width, height), Rule.CONWAY, Topology.DEAD, new ForkJoinPool(threads), true);
+    }
+
+    // uses a pool that belongs to someone else (e.g. one that is shared by lots of engines). close() won't shut it down
+    public ParallelEngine(BitGrid grid, ForkJoinPool pool) {
+        this(grid, Rule.CONWAY, Topology.DEAD, pool, false);
+    }
+
+    public ParallelEngine(BitGrid grid, Rule rule, ForkJoinPool pool) {
+        this(grid, rule, Topology.DEAD, pool, false);
+    }
+
+    public ParallelEngine(BitGrid grid, Rule rule, Topology topology, ForkJoinPool pool) {
+        this(grid, rule, topology, pool, false);
+    }
+
+    private ParallelEngine(BitGrid grid, Rule rule, Topology topology, ForkJoinPool pool, boolean ownsPool) {
+        super(grid, rule, topology);
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        bandRows = Math.max(MIN_BAND_ROWS, grid.getHeight() / (pool.getParallelism() * BANDS_PER_THREAD));
+    }
+
+    @Override
+    protected void stepOnce() {
+        if (grid.getHeight() <= bandRows) { // there is only one band, so there's no point handing it to the pool
+            grid.step(nextGrid, rule, topology);
+        } else {
+            pool.invoke(new Band(grid, nextGrid, rule, topology, 0, grid.getHeight(), bandRows)); // this only returns when every band is done
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    // works out rows 'fromRow' to 'toRow'. If there are too many rows, it splits itself in half and does both halves at the same time
+    private static class Band extends RecursiveAction {
+        private static final long serialVersionUID = 1L; // RecursiveAction is Serializable, though a Band is never serialized
+        private final BitGrid grid;
+        private final BitGrid next;
+        private final Rule rule;
+        private final Topology topology;
+        private final int fromRow;
+        private final int toRow;
+        private final int bandRows;
+
+        Band(BitGrid grid, BitGrid next, Rule rule, Topology topology, int fromRow, int toRow, int bandRows) {
+            this.grid = grid;
+            this.next = next;
+            this.rule = rule;
+            this.topology = topology;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.bandRows = bandRows;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= bandRows) {
+                grid.stepRows(next, rule, topology, fromRow, toRow);
+            } else {
+                int middle = (fromRow + toRow) >>> 1;
+                invokeAll(new Band(grid, next, rule, topology, fromRow, middle, bandRows), new Band(grid, next, rule, topology, middle, toRow, bandRows));
+            }
+        }
+    }
+}
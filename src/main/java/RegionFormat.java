@@ -0,0 +1,150 @@
+/**
+ * A compact binary form of a rectangle of a board, used by SimulationServer to send cells to and from other programs
+ * (instead of the text grid that gridDraw() prints, which takes 3 bytes a cell). Everything is big endian:
+ * byte   encoding     BITS (0) or STATES (1)
+ * int    width        the size of the rectangle
+ * int    height
+ * long   generation   the generation of the board (ignored when a region is sent to the server)
+ * then the rows, top to bottom:
+ * BITS:   (width + 7) / 8 bytes a row. Bit k (k = 0 is the lowest bit) of byte b is column 8b + k, 1 if it is alive
+ * STATES: width bytes a row, each the state of a cell (0 dead, 1 alive, more for dying cells with Generations rules)
+ * A 64x64 region takes 17 + 512 bytes as BITS.
+ *
+ * Cells are changed a cell at a time through the Simulation (so the engine and cycle detection know about them), but
+ * BITS regions are read out of the engine's grid 64 cells at a time when it has one (see GridEngine).
+ */
+
+package main.java;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class RegionFormat {
+    public static final byte BITS = 0;
+    public static final byte STATES = 1;
+    public static final int HEADER_BYTES = 17;
+
+    private RegionFormat() {
+    }
+
+    // the amount of bytes write() writes for a region this size
+    public static long size(int width, int height, byte encoding) {
+        long rowBytes = encoding == BITS ? (width + 7) / 8 : width;
+        return HEADER_BYTES + rowBytes * height;
+    }
+
+    // writes the rectangle of 'simulation' with its top left cell at (row, column). It has to be all on the board
+    public static void write(DataOutputStream out, Simulation simulation, int row, int column, int width, int height, byte encoding) throws IOException {
+        checkRegion(simulation, row, column, width, height);
+        if (encoding != BITS && encoding != STATES) {
+            throw new IllegalArgumentException("Unknown region encoding " + encoding);
+        }
+        out.writeByte(encoding);
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeLong(simulation.getGeneration());
+        if (encoding == STATES) {
+            byte[] line = new byte[width];
+            for (int i = 0; i < height; i++) {
+                for (int j = 0; j < width; j++) {
+                    line[j] = (byte) simulation.getState(row + i, column + j);
+                }
+                out.write(line);
+            }
+            return;
+        }
+        byte[] line = new byte[(width + 7) / 8];
+        Engine engine = simulation.getEngine();
+        BitGrid grid = engine instanceof GridEngine ? ((GridEngine) engine).getGrid() : null;
+        for (int i = 0; i < height; i++) {
+            if (grid != null && grid.getWidth() == simulation.getWidth()) {
+                packRow(grid, row + i, column, width, line);
+            } else {
+                Arrays.fill(line, (byte) 0);
+                for (int j = 0; j < width; j++) {
+                    if (simulation.getCell(row + i, column + j)) {
+                        line[j >>> 3] |= (byte) (1 << (j & 7));
+                    }
+                }
+            }
+            out.write(line);
+        }
+    }
+
+    // puts 'width' cells of the row, starting at 'column', into 'line' 64 at a time
+    private static void packRow(BitGrid grid, int row, int column, int width, byte[] line) {
+        long[] words = grid.getWords();
+        int start = row * grid.getWordsPerRow();
+        for (int j = 0; j < width; j += BitGrid.WORD_SIZE) {
+            int first = column + j; // the column of the first of these 64 cells
+            int word = start + (first >>> 6);
+            int shift = first & 63;
+            long bits = words[word] >>> shift;
+            if (shift != 0 && (first >>> 6) + 1 < grid.getWordsPerRow()) {
+                bits |= words[word + 1] << (BitGrid.WORD_SIZE - shift); // the rest come from the next word
+            }
+            int cells = Math.min(BitGrid.WORD_SIZE, width - j);
+            if (cells < BitGrid.WORD_SIZE) {
+                bits &= (1L << cells) - 1; // the cells past the end of the region aren't sent
+            }
+            for (int b = 0; b < (cells + 7) / 8; b++) {
+                line[(j >>> 3) + b] = (byte) (bits >>> (8 * b));
+            }
+        }
+    }
+
+    /* Reads a region and puts its cells onto 'simulation' with its top left cell at (row, column). It has to fit on
+     * the board. Every cell of the rectangle is set, so dead cells in the region kill the cells under them. If the
+     * region can't be read (or has states the rule doesn't have), nothing on the board is changed.
+     */
+    public static void read(DataInputStream in, Simulation simulation, int row, int column) throws IOException {
+        byte encoding = in.readByte();
+        if (encoding != BITS && encoding != STATES) {
+            throw new IOException("Unknown region encoding " + encoding);
+        }
+        int width = in.readInt();
+        int height = in.readInt();
+        in.readLong(); // the generation isn't used
+        try {
+            checkRegion(simulation, row, column, width, height);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        // the whole region is read and checked before any cells are set, so a region that is cut short or has a state
+        // the rule doesn't have leaves the board as it was
+        int rowBytes = encoding == BITS ? (width + 7) / 8 : width;
+        if ((long) rowBytes * height > Integer.MAX_VALUE - 8) {
+            throw new IOException("A " + width + "x" + height + " region is too big to be read at once");
+        }
+        byte[] cells = new byte[rowBytes * height];
+        in.readFully(cells);
+        if (encoding == STATES) {
+            int states = simulation.getRule().getStates();
+            for (int k = 0; k < cells.length; k++) {
+                if ((cells[k] & 0xFF) >= states) {
+                    throw new IOException("Cell (" + (row + k / width) + ", " + (column + k % width) + ") can't be state " + (cells[k] & 0xFF)
+                            + ", because " + simulation.getRule() + " only has " + states + " states");
+                }
+            }
+        }
+        for (int i = 0; i < height; i++) {
+            int start = i * rowBytes;
+            for (int j = 0; j < width; j++) {
+                if (encoding == BITS) {
+                    simulation.setCell(row + i, column + j, (cells[start + (j >>> 3)] >>> (j & 7) & 1) != 0);
+                } else {
+                    simulation.setState(row + i, column + j, cells[start + j] & 0xFF);
+                }
+            }
+        }
+    }
+
+    private static void checkRegion(Simulation simulation, int row, int column, int width, int height) {
+        if (width < 0 || height < 0 || row < 0 || column < 0
+                || (long) row + height > simulation.getHeight() || (long) column + width > simulation.getWidth()) {
+            throw new IllegalArgumentException("A " + width + "x" + height + " region at (" + row + ", " + column + ") isn't on the "
+                    + simulation.getWidth() + "x" + simulation.getHeight() + " board");
+        }
+    }
+}
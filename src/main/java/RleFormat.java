@@ -0,0 +1,212 @@
+/**
+ * Reads and writes the RLE format that most Life programs use to share patterns. This is an example of a glider:
+ * #C a comment
+ * x = 3, y = 3, rule = B3/S23
+ * bob$2bo$3o!
+ * 'b' is a dead cell, 'o' is a live cell and '$' is the end of a row. A number in front of any of them repeats it
+ * that many times. Dead cells at the end of a row can be left out, and '!' is the end of the pattern.
+ * The rule in the header can be any rule that Rule can read. Patterns for Generations rules use '.' for dead cells and
+ * 'A', 'B', 'C'... for states 1, 2, 3... (the way other programs write them), so they can have up to 25 states.
+ */
+
+package main.java;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.IntBinaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class RleFormat {
+    public static final int MAX_STATES = 25; // '.' and 'A' to 'X'
+    public static final int LINE_LENGTH = 70; // lines of the pattern are kept shorter than this, like other programs do
+
+    // the header line, e.g. "x = 3, y = 3, rule = B3/S23" (the rule can be left out)
+    private static final Pattern HEADER = Pattern.compile("\\s*x\\s*=\\s*(\\d+)\\s*,\\s*y\\s*=\\s*(\\d+)\\s*(?:,\\s*rule\\s*=\\s*(\\S+))?\\s*");
+
+    private RleFormat() {
+    }
+
+    // the live cells of the pattern, whatever rule it is for
+    public static BitGrid read(Path file) throws IOException {
+        return load(file).snapshot();
+    }
+
+    // the width and height of the board the file would be loaded into, read from just the header
+    public static int[] readSize(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            Matcher header = readHeader(file, reader);
+            return new int[] {Math.max(parseSize(file, header.group(1)), 1), Math.max(parseSize(file, header.group(2)), 1)};
+        }
+    }
+
+    // skips the comments and reads the header line
+    private static Matcher readHeader(Path file, BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        while (line != null && (line.startsWith("#") || line.isBlank())) { // comments come before the header
+            line = reader.readLine();
+        }
+        if (line == null) {
+            throw new IOException(file + " doesn't have an RLE header");
+        }
+        Matcher header = HEADER.matcher(line);
+        if (!header.matches()) {
+            throw new IOException(file + " doesn't have an RLE header: " + line);
+        }
+        return header;
+    }
+
+    private static int parseSize(Path file, String digits) throws IOException {
+        try {
+            return Integer.parseInt(digits);
+        } catch (NumberFormatException e) {
+            throw new IOException(file + " has a size that is too big: " + digits, e);
+        }
+    }
+
+    // reads the pattern into a Simulation that uses the rule from the header (or Conway's rules if it doesn't have one)
+    public static Simulation load(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            Matcher header = readHeader(file, reader);
+            int width = parseSize(file, header.group(1));
+            int height = parseSize(file, header.group(2));
+            Rule rule = Rule.CONWAY;
+            if (header.group(3) != null) {
+                try {
+                    rule = Rule.parse(header.group(3));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(file + " has a rule that can't be read: " + e.getMessage(), e);
+                }
+            }
+            Simulation simulation = new Simulation(Math.max(width, 1), Math.max(height, 1), rule);
+
+            // the positions are longs and the counts are limited, so a made up count can't wrap around to a cell on the board
+            long longest = Math.max(Math.max(width, height), 1); // no count can be bigger than this and still fit the header
+            long row = 0;
+            long column = 0;
+            long count = 0; // the number in front of the current letter (0 means there wasn't one)
+            int c;
+            while ((c = reader.read()) != -1 && c != '!') {
+                if (c >= '0' && c <= '9') {
+                    count = count * 10 + (c - '0');
+                    if (count > longest) {
+                        throw new IOException(file + " has a count that is bigger than its header (" + width + "x" + height + ") allows");
+                    }
+                    continue;
+                }
+                if (Character.isWhitespace(c)) {
+                    continue;
+                }
+                long times = Math.max(count, 1);
+                count = 0;
+                if (c == '$') {
+                    row += times;
+                    column = 0;
+                    if (row > height) { // a '$' at the end of the last row is allowed, as long as nothing comes after it
+                        throw tooBig(file, width, height);
+                    }
+                } else if (c == 'b' || c == '.') {
+                    column += times;
+                    if (column > width) {
+                        throw tooBig(file, width, height);
+                    }
+                } else if (Character.isLetter(c)) { // 'o', or any other letter (other programs use these for live cells with more than one state)
+                    if (row >= height || column + times > width) {
+                        throw tooBig(file, width, height);
+                    }
+                    int state = rule.isGenerations() && c >= 'A' && c <= 'X' ? c - 'A' + 1 : 1;
+                    if (state >= rule.getStates()) {
+                        throw new IOException(file + " has a cell in state " + state + " but " + rule + " only has " + rule.getStates() + " states");
+                    }
+                    for (int k = 0; k < times; k++) {
+                        simulation.setState((int) row, (int) column + k, state);
+                    }
+                    column += times;
+                } else {
+                    throw new IOException(file + " has a '" + (char) c + "' in its pattern");
+                }
+            }
+            return simulation;
+        }
+    }
+
+    private static IOException tooBig(Path file, int width, int height) {
+        return new IOException("The pattern in " + file + " is bigger than its header says (" + width + "x" + height + ")");
+    }
+
+    public static void write(Path file, BitGrid grid) throws IOException {
+        write(file, grid.getWidth(), grid.getHeight(), Rule.CONWAY, (row, column) -> grid.get(row, column) ? 1 : 0);
+    }
+
+    // writes the board with its rule. Boards with a Generations rule can't have more than MAX_STATES states
+    public static void write(Path file, Simulation simulation) throws IOException {
+        if (simulation.getRule().getStates() > MAX_STATES) {
+            throw new IllegalArgumentException("RLE files can only hold " + MAX_STATES + " states, but " + simulation.getRule() + " has " + simulation.getRule().getStates());
+        }
+        write(file, simulation.getWidth(), simulation.getHeight(), simulation.getRule(), simulation::getState);
+    }
+
+    // 'states' gives the state of the cell at (row, column)
+    private static void write(Path file, int width, int height, Rule rule, IntBinaryOperator states) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            writer.write("x = " + width + ", y = " + height + ", rule = " + rule + "\n");
+            Line line = new Line(writer);
+            int endedRows = 0; // rows that have ended but haven't had their '$' written yet (so empty rows at the end are left out)
+            for (int i = 0; i < height; i++) {
+                int column = 0;
+                int dead = 0; // the dead cells since the last live one (left out if they are at the end of the row)
+                while (column < width) {
+                    int state = states.applyAsInt(i, column);
+                    int run = 1;
+                    while (column + run < width && states.applyAsInt(i, column + run) == state) {
+                        run++;
+                    }
+                    if (state != 0) {
+                        if (endedRows > 0) {
+                            line.add(endedRows, '$');
+                            endedRows = 0;
+                        }
+                        if (dead > 0) {
+                            line.add(dead, rule.isGenerations() ? '.' : 'b');
+                        }
+                        line.add(run, rule.isGenerations() ? (char) ('A' + state - 1) : 'o');
+                        dead = 0;
+                    } else {
+                        dead = run;
+                    }
+                    column += run;
+                }
+                endedRows++;
+            }
+            line.add(1, '!');
+            line.finish();
+        }
+    }
+
+    // writes "count letter" pieces, starting a new line before one would go over LINE_LENGTH
+    private static class Line {
+        private final BufferedWriter writer;
+        private int length = 0;
+
+        Line(BufferedWriter writer) {
+            this.writer = writer;
+        }
+
+        void add(int count, char letter) throws IOException {
+            String piece = (count > 1 ? Integer.toString(count) : "") + letter;
+            if (length + piece.length() > LINE_LENGTH) {
+                writer.write('\n');
+                length = 0;
+            }
+            writer.write(piece);
+            length += piece.length();
+        }
+
+        void finish() throws IOException {
+            writer.write('\n');
+        }
+    }
+}
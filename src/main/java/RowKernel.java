@@ -0,0 +1,42 @@
+/**
+ * Works out the next generation of a run of words in the middle of a row several words at a time, for BitGrid.
+ * The only one is VectorKernel, which uses the jdk.incubator.vector module so that each instruction works on a whole
+ * SIMD register of words (8 words, or 512 cells, with AVX-512). That module isn't always there: it has to be added
+ * with --add-modules jdk.incubator.vector (the Gradle tasks do this), so VectorKernel is only loaded by name, and if
+ * it can't be, BitGrid just works out every word itself one at a time.
+ *
+ * RowKernelTest (run by gradle test) checks that it gives exactly the same words as BitGrid.nextWord() and
+ * Rule.nextWord() for lots of random rows and rules. BitGrid.kernelName() tells which one is being used.
+ * Running with -Dgol.vector=false turns it off.
+ */
+
+package main.java;
+
+interface RowKernel {
+    /* Works out words 'from' (inclusive) to 'to' (exclusive) of the row that starts at 'mid' in 'midWords' and puts
+     * them in 'out' (at the same place). The rows above and below start at 'up' and 'down'. 'from' has to be at least 1
+     * and 'to' at most the last word of the row, because the words on each side of every word are read. Returns how
+     * many words were done, starting at 'from' (0 if there are too few for it to be worth it). The rest are left to the caller.
+     */
+    int stepWords(long[] upWords, int up, long[] midWords, int mid, long[] downWords, int down, long[] out, int from, int to, Rule rule);
+
+    // the amount of words done at a time
+    int lanes();
+
+    // the kernel BitGrid should use, or null if there isn't one that works on this JVM
+    static RowKernel load() {
+        if ("false".equalsIgnoreCase(System.getProperty("gol.vector"))) {
+            return null;
+        }
+        RowKernel kernel;
+        try {
+            kernel = (RowKernel) Class.forName("main.java.VectorKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) { // the jdk.incubator.vector module wasn't added
+            return null;
+        }
+        if (kernel.lanes() < 2) {
+            return null; // the CPU has no SIMD registers bigger than a long, so it can't be any quicker
+        }
+        return kernel;
+    }
+}
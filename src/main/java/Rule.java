@@ -0,0 +1,223 @@
+/**
+ * The rules that decide which cells are alive in the next generation, written in B/S notation:
+ * B3/S23 means a dead cell is born with 3 live neighbours and a live cell survives with 2 or 3 (Conway's rules).
+ * The older S/B way of writing it (23/3) is read too.
+ *
+ * Generations rules have a third part, the amount of states a cell can be in: B2/S/3 (or /2/3) is Brian's Brain.
+ * State 0 is dead and state 1 is alive. A live cell that doesn't survive goes to state 2 instead of dying, then moves up
+ * one state every generation until it gets to the last state and dies. Only state 1 cells count as neighbours, and a
+ * cell that is dying (state 2 or more) can't be born again until it is dead.
+ *
+ * A rule is worked out once into a lookup table of masks when it is made (one for each neighbour count), so nextWord()
+ * works out 64 cells with exactly the same bitwise operations whatever the rule is: there are no ifs or loops that depend
+ * on the rule or the cells. Conway's rules still use BitGrid.nextWord(), which only has to tell apart the counts
+ * Conway's rules care about, so it needs fewer operations.
+ */
+
+package main.java;
+import java.util.Locale;
+
+public final class Rule {
+    public static final int MAX_STATES = 256; // the states have to fit in a byte
+    public static final Rule CONWAY = new Rule(1 << 3, (1 << 2) | (1 << 3), 2);
+
+    private final int birth; // bit n is set if a dead cell with n live neighbours is born
+    private final int survival; // bit n is set if a live cell with n live neighbours stays alive
+    private final int states; // 2 for normal rules, more for Generations rules
+    private final boolean conway;
+
+    // for each neighbour count n: born[n] is all 1s if a dead cell with n neighbours is born (otherwise 0), and
+    // differs[n] is all 1s if a live cell with n neighbours does the opposite of a dead one. They are kept in separate
+    // fields instead of arrays so that nextWord() doesn't have to load them through an array
+    private final long born0, born1, born2, born3, born4, born5, born6, born7, born8;
+    private final long differs0, differs1, differs2, differs3, differs4, differs5, differs6, differs7, differs8;
+
+    private Rule(int birth, int survival, int states) {
+        this.birth = birth;
+        this.survival = survival;
+        this.states = states;
+        conway = birth == (1 << 3) && survival == ((1 << 2) | (1 << 3));
+        born0 = mask(birth, 0); born1 = mask(birth, 1); born2 = mask(birth, 2);
+        born3 = mask(birth, 3); born4 = mask(birth, 4); born5 = mask(birth, 5);
+        born6 = mask(birth, 6); born7 = mask(birth, 7); born8 = mask(birth, 8);
+        int differs = birth ^ survival;
+        differs0 = mask(differs, 0); differs1 = mask(differs, 1); differs2 = mask(differs, 2);
+        differs3 = mask(differs, 3); differs4 = mask(differs, 4); differs5 = mask(differs, 5);
+        differs6 = mask(differs, 6); differs7 = mask(differs, 7); differs8 = mask(differs, 8);
+    }
+
+    // all 1s if bit n of 'counts' is set, otherwise 0
+    private static long mask(int counts, int n) {
+        return (counts >>> n & 1) != 0 ? -1L : 0L;
+    }
+
+    /* Reads a rule like "B36/S23", "23/3", "B2/S/3" or "/2/3". Throws an IllegalArgumentException if it isn't one.
+     * Without the letters, the first part is survival and the second is birth (the old way of writing them).
+     */
+    public static Rule parse(String text) {
+        String[] parts = text.trim().toUpperCase(Locale.ROOT).split("/", -1);
+        if (parts.length < 2 || parts.length > 3) {
+            throw new IllegalArgumentException("'" + text + "' isn't a rule (it should look like B3/S23)");
+        }
+        int birth;
+        int survival;
+        if (parts[0].startsWith("B") && parts[1].startsWith("S")) {
+            birth = counts(parts[0].substring(1), text);
+            survival = counts(parts[1].substring(1), text);
+        } else if (parts[0].startsWith("S") && parts[1].startsWith("B")) {
+            survival = counts(parts[0].substring(1), text);
+            birth = counts(parts[1].substring(1), text);
+        } else {
+            survival = counts(parts[0], text);
+            birth = counts(parts[1], text);
+        }
+        int states = 2;
+        if (parts.length == 3) {
+            String amount = parts[2].startsWith("C") || parts[2].startsWith("G") ? parts[2].substring(1) : parts[2];
+            try {
+                states = Integer.parseInt(amount);
+            } catch (NumberFormatException notInt) {
+                throw new IllegalArgumentException("'" + text + "' doesn't have a number of states at the end");
+            }
+            if (states < 2 || states > MAX_STATES) {
+                throw new IllegalArgumentException("A rule has to have between 2 and " + MAX_STATES + " states, not " + states);
+            }
+        }
+        return of(birth, survival, states);
+    }
+
+    // 'birth' and 'survival' have bit n set for each neighbour count n (0 to 8) that makes a cell alive
+    public static Rule of(int birth, int survival, int states) {
+        if ((birth | survival) >>> 9 != 0) {
+            throw new IllegalArgumentException("A cell can't have more than 8 neighbours");
+        }
+        if (states < 2 || states > MAX_STATES) {
+            throw new IllegalArgumentException("A rule has to have between 2 and " + MAX_STATES + " states, not " + states);
+        }
+        if (birth == CONWAY.birth && survival == CONWAY.survival && states == 2) {
+            return CONWAY;
+        }
+        return new Rule(birth, survival, states);
+    }
+
+    // turns a string of digits like "23" into a mask with bits 2 and 3 set
+    private static int counts(String digits, String text) {
+        int mask = 0;
+        for (int k = 0; k < digits.length(); k++) {
+            char c = digits.charAt(k);
+            if (c < '0' || c > '8') {
+                throw new IllegalArgumentException("'" + text + "' has a '" + c + "' in it, but neighbour counts go from 0 to 8");
+            }
+            mask |= 1 << (c - '0');
+        }
+        return mask;
+    }
+
+    public int getBirth() {
+        return birth;
+    }
+
+    public int getSurvival() {
+        return survival;
+    }
+
+    public int getStates() {
+        return states;
+    }
+
+    public boolean isConway() {
+        return conway;
+    }
+
+    // whether this is a Generations rule (cells have more states than alive and dead)
+    public boolean isGenerations() {
+        return states > 2;
+    }
+
+    // whether a cell is born with 0 neighbours. Empty space doesn't stay empty, so this can't be used in a world with no edges
+    public boolean bornFromNothing() {
+        return (birth & 1) != 0;
+    }
+
+    // whether a cell that is alive (or dead) with 'neighbours' live neighbours is alive next generation
+    public boolean isAliveNext(boolean alive, int neighbours) {
+        return ((alive ? survival : birth) >>> neighbours & 1) != 0;
+    }
+
+    // works out whether each of the 64 cells in 'midCur' is alive next generation, for any rule. See BitGrid.nextWord()
+    long nextWord(long upPrev, long upCur, long upNxt, long midPrev, long midCur, long midNxt,
+                  long downPrev, long downCur, long downNxt) {
+        long upWest = (upCur << 1) | (upPrev >>> 63);
+        long upEast = (upCur >>> 1) | (upNxt << 63);
+        long midWest = (midCur << 1) | (midPrev >>> 63);
+        long midEast = (midCur >>> 1) | (midNxt << 63);
+        long downWest = (downCur << 1) | (downPrev >>> 63);
+        long downEast = (downCur >>> 1) | (downNxt << 63);
+
+        // the same adder as BitGrid.nextWord(), except bit 3 is kept so that 8 neighbours can be told apart from 0
+        long up0 = upWest ^ upCur ^ upEast;
+        long up1 = (upWest & upCur) | (upEast & (upWest ^ upCur));
+        long mid0 = midWest ^ midEast;
+        long mid1 = midWest & midEast;
+        long down0 = downWest ^ downCur ^ downEast;
+        long down1 = (downWest & downCur) | (downEast & (downWest ^ downCur));
+
+        long sum0 = up0 ^ mid0 ^ down0;
+        long carry0 = (up0 & mid0) | (down0 & (up0 ^ mid0));
+        long ones1 = up1 ^ mid1 ^ down1;
+        long carry1 = (up1 & mid1) | (down1 & (up1 ^ mid1));
+        long sum1 = ones1 ^ carry0;
+        long carry2 = ones1 & carry0;
+        long sum2 = carry1 ^ carry2;
+        long sum3 = carry1 & carry2;
+
+        // what each count means for each cell: for count n, the cell is alive next if born[n] (when it is dead now), or
+        // the opposite of that if differs[n] (when it is alive now)
+        long next0 = born0 ^ (midCur & differs0), next1 = born1 ^ (midCur & differs1), next2 = born2 ^ (midCur & differs2);
+        long next3 = born3 ^ (midCur & differs3), next4 = born4 ^ (midCur & differs4), next5 = born5 ^ (midCur & differs5);
+        long next6 = born6 ^ (midCur & differs6), next7 = born7 ^ (midCur & differs7), next8 = born8 ^ (midCur & differs8);
+
+        // then the one for each cell's count is picked with the bits of the count (a ^ ((a ^ b) & bit) picks b where the bit
+        // is 1 and a where it is 0). 8 neighbours looks like 0 in the bottom three bits, so sum3 is used to pick it last
+        long pick01 = next0 ^ ((next0 ^ next1) & sum0), pick23 = next2 ^ ((next2 ^ next3) & sum0);
+        long pick45 = next4 ^ ((next4 ^ next5) & sum0), pick67 = next6 ^ ((next6 ^ next7) & sum0);
+        long pick03 = pick01 ^ ((pick01 ^ pick23) & sum1), pick47 = pick45 ^ ((pick45 ^ pick67) & sum1);
+        long pick07 = pick03 ^ ((pick03 ^ pick47) & sum2);
+        return pick07 ^ ((pick07 ^ next8) & sum3);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Rule)) {
+            return false;
+        }
+        Rule other = (Rule) o;
+        return other.birth == birth && other.survival == survival && other.states == states;
+    }
+
+    @Override
+    public int hashCode() {
+        return (birth * 512 + survival) * 257 + states;
+    }
+
+    // the rule in B/S notation, e.g. "B3/S23" or "B2/S/3"
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("B");
+        appendCounts(text, birth);
+        text.append("/S");
+        appendCounts(text, survival);
+        if (states > 2) {
+            text.append('/').append(states);
+        }
+        return text.toString();
+    }
+
+    private static void appendCounts(StringBuilder text, int mask) {
+        for (int n = 0; n <= 8; n++) {
+            if ((mask >>> n & 1) != 0) {
+                text.append(n);
+            }
+        }
+    }
+}
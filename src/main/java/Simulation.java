@@ -0,0 +1,366 @@
+/**
+ * This runs a game of life without any of the menus, so it can be used by other programs.
+ * There is no reading from the keyboard, no printing and no waiting between turns - step(n) just works out n generations
+ * as fast as the engine can.
+ *
+ * Example:
+ * Simulation simulation = new Simulation(100, 100);
+ * simulation.setCell(1, 2, true);
+ * simulation.step(1000);
+ * boolean alive = simulation.getCell(1, 2);
+ *
+ * With setCycleDetection(true), the simulation notices when the board has settled down (see CycleDetector) and then
+ * skips the generations that would only go round the same cycle again, so step(1000000) on a board of still lifes and
+ * blinkers only works out the generations until it settled.
+ *
+ * With setHistory(), every generation that is worked out is recorded (see GenerationHistory), and seek() puts the
+ * board back to any generation that is still kept, by changing only the cells that are different.
+ */
+
+package main.java;
+
+public class Simulation {
+    private final Engine engine; // the engine that holds the cells and works out the generations
+    private final int width; // the amount of columns on the board
+    private final int height; // the amount of rows on the board
+    private long generation = 0; // how many generations have been worked out since the start
+    private CycleDetector cycles; // null unless cycle detection is on
+    private SimulationMetrics metrics; // where step() records what it did (null if nothing is recorded)
+    private GenerationHistory history; // null unless the generations are being recorded
+    private boolean historyBehind = false; // whether the cells have been changed since the history last recorded the board
+    private BitGrid scratch; // a copy of the board, for engines that don't keep it in a grid the same size
+
+    // a board of dead cells that uses the standard (PackedEngine) engine
+    public Simulation(int width, int height) {
+        this(new PackedEngine(width, height), width, height);
+    }
+
+    // a board of dead cells that uses 'rule'. Generations rules get a GenerationsEngine and the rest get a PackedEngine
+    public Simulation(int width, int height, Rule rule) {
+        this(new BitGrid(width, height), rule);
+    }
+
+    // a board that starts with the cells in 'grid' (the grid is used by the engine directly, not copied)
+    public Simulation(BitGrid grid) {
+        this(new PackedEngine(grid), grid.getWidth(), grid.getHeight());
+    }
+
+    public Simulation(BitGrid grid, Rule rule) {
+        this(grid, rule, Topology.DEAD);
+    }
+
+    public Simulation(BitGrid grid, Rule rule, Topology topology) {
+        this(rule.isGenerations() ? new GenerationsEngine(grid, rule, topology) : new PackedEngine(grid, rule, topology), grid.getWidth(), grid.getHeight());
+    }
+
+    // 'width' and 'height' are the size of the board. Engines that aren't limited to a grid still only have this area looked at
+    public Simulation(Engine engine, int width, int height) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Board must be at least 1x1 but was " + width + "x" + height);
+        }
+        if (engine instanceof GridEngine) { // the cells past the grid don't exist, so the board can't be any other size
+            BitGrid grid = ((GridEngine) engine).getGrid();
+            if (grid.getWidth() != width || grid.getHeight() != height) {
+                throw new IllegalArgumentException("The engine's grid is " + grid.getWidth() + "x" + grid.getHeight() + " but the board was asked to be " + width + "x" + height);
+            }
+        }
+        this.engine = engine;
+        this.width = width;
+        this.height = height;
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    // used when a board is loaded from a snapshot, so that the generation carries on from where it was saved
+    public void setGeneration(long generation) {
+        this.generation = generation;
+        forgetCycle();
+    }
+
+    public long getPopulation() {
+        return engine.getPopulation();
+    }
+
+    public Rule getRule() {
+        return engine.getRule();
+    }
+
+    public Topology getTopology() {
+        return engine.getTopology();
+    }
+
+    public boolean getCell(int row, int column) {
+        checkOnBoard(row, column);
+        return engine.getCell(row, column);
+    }
+
+    public void setCell(int row, int column, boolean alive) {
+        checkOnBoard(row, column);
+        engine.setCell(row, column, alive);
+        forgetCycle();
+    }
+
+    // the state of the cell: 0 is dead, 1 is alive and anything higher is dying (only with Generations rules)
+    public int getState(int row, int column) {
+        checkOnBoard(row, column);
+        return engine.getState(row, column);
+    }
+
+    public void setState(int row, int column, int state) {
+        checkOnBoard(row, column);
+        engine.setState(row, column, state);
+        forgetCycle();
+    }
+
+    /* Turns cycle detection on or off. It only works with engines that keep their cells in a grid (see GridEngine).
+     * With it on, each generation is worked out on its own so that it can be looked at, and the hash of the board is
+     * updated from the words that changed, which adds a few percent to each generation.
+     */
+    public void setCycleDetection(boolean on) {
+        setCycleDetection(on, CycleDetector.DEFAULT_HISTORY);
+    }
+
+    // 'history' is the longest cycle that will be found
+    public void setCycleDetection(boolean on, int history) {
+        if (!on) {
+            cycles = null;
+            return;
+        }
+        if (!(engine instanceof GridEngine)) {
+            throw new UnsupportedOperationException("Cycle detection needs an engine that keeps its cells in a grid, not a " + engine.getClass().getSimpleName());
+        }
+        BitGrid grid = ((GridEngine) engine).getGrid();
+        cycles = new CycleDetector(grid.getWidth(), grid.getHeight(), engine.getRule(), history);
+    }
+
+    // makes step() record into 'metrics' (see SimulationMetrics). null stops it recording
+    public void setMetrics(SimulationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public SimulationMetrics getMetrics() {
+        return metrics;
+    }
+
+    // the cycle detector, or null if cycle detection is off
+    public CycleDetector getCycleDetector() {
+        return cycles;
+    }
+
+    // whether the board has settled down (this is only known with cycle detection on)
+    public boolean isSettled() {
+        return cycles != null && cycles.isSettled();
+    }
+
+    /* Starts recording every generation into 'history', which has to be for boards the same size as this one, starting
+     * with the board as it is now. null stops the recording. Generations rules can't be recorded, because the history
+     * only keeps which cells are alive. Only the cells on the board are kept, so an engine without edges (like
+     * SparseEngine) keeps any cells that went off the board when it seeks. With cycle detection on, the generations
+     * skipped once the board has settled down aren't recorded.
+     */
+    public void setHistory(GenerationHistory history) {
+        if (history != null && engine.getRule().isGenerations()) {
+            throw new UnsupportedOperationException("The history can't keep the dying cells of Generations rules like " + engine.getRule());
+        }
+        this.history = history;
+        if (history != null) {
+            history.record(currentGrid(), generation);
+            historyBehind = false;
+        }
+    }
+
+    // the history the generations are recorded in, or null if they aren't
+    public GenerationHistory getHistory() {
+        return history;
+    }
+
+    /* Puts the board back (or forward) to 'generation', which has to be kept in the history. Only the cells that are
+     * different are changed. Stepping from there works out the generations after it again, and they replace the ones
+     * that were recorded after it before.
+     */
+    public void seek(long generation) {
+        if (history == null) {
+            throw new IllegalStateException("There is no history to seek in (see setHistory())");
+        }
+        if (historyBehind) { // the board was changed after the last generation was recorded, so that is recorded too
+            history.record(currentGrid(), this.generation);
+            historyBehind = false;
+        }
+        if (!history.contains(generation)) {
+            throw new IllegalArgumentException("Generation " + generation + " isn't kept in the history any more (it has generations "
+                    + history.getFirstGeneration() + " to " + history.getLastGeneration() + ")");
+        }
+        long[] target = history.seek(generation).getWords();
+        BitGrid current = currentGrid();
+        long[] words = current.getWords();
+        int wordsPerRow = current.getWordsPerRow();
+        for (int i = 0; i < words.length; i++) {
+            long flips = words[i] ^ target[i];
+            while (flips != 0) {
+                int bit = Long.numberOfTrailingZeros(flips);
+                flips &= flips - 1;
+                int row = i / wordsPerRow;
+                int column = (i % wordsPerRow) * BitGrid.WORD_SIZE + bit;
+                engine.setCell(row, column, (target[i] >>> bit & 1) != 0);
+            }
+        }
+        this.generation = generation;
+        if (cycles != null) {
+            cycles.reset();
+        }
+    }
+
+    // the board as a grid: the engine's own grid if it has one the same size, otherwise a copy
+    private BitGrid currentGrid() {
+        if (engine instanceof GridEngine && ((GridEngine) engine).getGrid().getWidth() == width && ((GridEngine) engine).getGrid().getHeight() == height) {
+            return ((GridEngine) engine).getGrid();
+        }
+        if (scratch == null) {
+            scratch = new BitGrid(width, height);
+        }
+        snapshotInto(scratch);
+        return scratch;
+    }
+
+    // the board doesn't follow on from the generations before any more, so the detector has to start again
+    private void forgetCycle() {
+        if (cycles != null) {
+            cycles.reset();
+        }
+        historyBehind = history != null;
+    }
+
+    // advances one generation
+    public void step() {
+        step(1);
+    }
+
+    // advances 'generations' generations (and records it in the metrics, if there are any)
+    public void step(long generations) {
+        if (generations < 0) {
+            throw new IllegalArgumentException("Can't step a negative amount of generations: " + generations);
+        }
+        if (metrics == null) {
+            advance(generations);
+            return;
+        }
+        metrics.recordStep(generations, (long) width * height);
+        if (!metrics.shouldSample() || generations == 0) {
+            advance(generations);
+            return;
+        }
+        long allocatedBefore = metrics.allocatedSoFar();
+        long start = System.nanoTime();
+        boolean stepped = advance(generations);
+        long nanos = System.nanoTime() - start;
+        long allocated = allocatedBefore < 0 ? -1 : metrics.allocatedSoFar() - allocatedBefore;
+        long changed = -1;
+        if (stepped && engine instanceof GridEngine) { // straight after stepping, the engine's previous grid is the generation before
+            changed = ((GridEngine) engine).getGrid().countDifferences(((GridEngine) engine).getPreviousGrid());
+        }
+        metrics.recordSample(generations, nanos, engine.getPopulation(), changed, allocated);
+    }
+
+    // returns whether the engine worked out any generations (it doesn't when a settled board goes round its cycle a whole number of times)
+    private boolean advance(long generations) {
+        if (cycles == null && history == null) {
+            engine.step(generations);
+            generation += generations;
+            return generations > 0;
+        }
+        if (history != null && historyBehind) { // the cells were changed, so the board they were changed to is recorded first
+            history.record(currentGrid(), generation);
+            historyBehind = false;
+        }
+        if (cycles != null && !cycles.isStarted()) {
+            cycles.start(((GridEngine) engine).getGrid(), generation);
+        }
+        long done = 0;
+        while (done < generations && (cycles == null || !cycles.isSettled())) {
+            engine.step(1);
+            done++;
+            generation++;
+            if (cycles != null) {
+                cycles.observe(((GridEngine) engine).getGrid(), ((GridEngine) engine).getPreviousGrid());
+            }
+            if (history != null) {
+                history.record(currentGrid(), generation);
+            }
+        }
+        boolean stepped = done > 0;
+        if (done < generations) {
+            // the board has settled down, so the rest of the generations just go round the cycle. Only the part of the
+            // last time round that is needed is worked out
+            long rest = (generations - done) % cycles.getPeriod();
+            engine.step(rest);
+            stepped |= rest > 0;
+            generation += generations - done;
+            if (history != null) { // the generations skipped aren't recorded, so this starts a new keyframe
+                history.record(currentGrid(), generation);
+            }
+        }
+        return stepped;
+    }
+
+    /* Steps until the board settles down, or until 'maxGenerations' generations have been worked out. Cycle detection
+     * is turned on if it wasn't already. Returns the amount of generations that were worked out.
+     */
+    public long stepUntilSettled(long maxGenerations) {
+        if (maxGenerations < 0) {
+            throw new IllegalArgumentException("Can't step a negative amount of generations: " + maxGenerations);
+        }
+        if (cycles == null) {
+            setCycleDetection(true);
+        }
+        long done = 0;
+        while (done < maxGenerations && !isSettled()) {
+            step(1);
+            done++;
+        }
+        return done;
+    }
+
+    // a copy of every cell on the board. Changing the copy doesn't change the simulation
+    public BitGrid snapshot() {
+        BitGrid copy = new BitGrid(width, height);
+        snapshotInto(copy);
+        return copy;
+    }
+
+    // copies every cell on the board into 'copy', which has to be the same size as the board. This lets the same grid be reused for lots of copies.
+    // Only whether each cell is alive is copied (dying cells are copied as dead)
+    public void snapshotInto(BitGrid copy) {
+        if (engine instanceof GridEngine && ((GridEngine) engine).getGrid().getWidth() == width && ((GridEngine) engine).getGrid().getHeight() == height) {
+            copy.copyFrom(((GridEngine) engine).getGrid()); // the engine already has a grid the same size, so it can be copied all at once
+        } else {
+            copy.clear();
+            for (int row = 0; row < height; row++) {
+                for (int column = 0; column < width; column++) {
+                    if (engine.getCell(row, column)) {
+                        copy.set(row, column, true);
+                    }
+                }
+            }
+        }
+    }
+
+    private void checkOnBoard(int row, int column) {
+        if (row < 0 || row >= height || column < 0 || column >= width) {
+            throw new IndexOutOfBoundsException("Cell (" + row + ", " + column + ") isn't on the " + width + "x" + height + " board");
+        }
+    }
+}
@@ -0,0 +1,358 @@
+/**
+ * Counters and timers for what a run is doing: how fast it is stepping, how many cells are alive and changing, and how
+ * the time is split between stepping, drawing the board and reading or writing files. They can be seen through JMX
+ * (see register()) and written to a file in the Prometheus text format (see writePrometheus()), which a Prometheus
+ * node exporter can pick up from its textfile folder.
+ *
+ * Recording is cheap enough to leave on all the time. The counters are LongAdders, which are split into a few cells so
+ * that threads adding to them at the same time don't fight over one value, and nothing on the stepping path takes a
+ * lock or allocates. Anything that costs more than a counter is only done on 1 in SAMPLE_EVERY calls to
+ * Simulation.step(): timing the call, counting the live and changed cells (which means going through the whole grid)
+ * and reading how much memory the thread has allocated. The speeds and averages are worked out from those calls. The
+ * time spent stepping is estimated on each sampled call, from how long its generations took and how many generations
+ * there have been since the last sample, so it only ever goes up (Prometheus treats a counter that goes down as a
+ * restart). On a small board, reading the clock twice for every generation would take longer than some generations do.
+ *
+ * Example:
+ * SimulationMetrics metrics = new SimulationMetrics();
+ * metrics.register();
+ * simulation.setMetrics(metrics);
+ * metrics.startWriting(Path.of("gol.prom"), 10000);
+ */
+
+package main.java;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class SimulationMetrics implements SimulationMetricsMBean, AutoCloseable {
+    public static final int SAMPLE_EVERY = 16; // the expensive measurements are taken on 1 in this many step() calls
+    public static final String OBJECT_NAME = "main.java:type=SimulationMetrics";
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final LongAdder generations = new LongAdder();
+    private final LongAdder cellUpdates = new LongAdder();
+    private final LongAdder timedGenerations = new LongAdder(); // the generations worked out by the sampled step() calls
+    private final LongAdder timedNanos = new LongAdder(); // and how long they took
+    private final LongAdder stepNanos = new LongAdder(); // the estimated time spent stepping, see recordSample()
+    private volatile long generationsAtSample = 0; // the generations there had been at the last sample
+    private final LongAdder renderNanos = new LongAdder();
+    private final LongAdder renders = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder saveNanos = new LongAdder();
+    private final LongAdder saves = new LongAdder();
+    private final LongAdder changedCells = new LongAdder(); // the total of the changed cells of the generations that were looked at
+    private final LongAdder changedSamples = new LongAdder(); // how many generations that is
+    private final LongAdder allocatedBytes = new LongAdder(); // the memory allocated during the step() calls that were looked at
+    private final LongAdder allocationGenerations = new LongAdder(); // the generations those calls worked out
+    private volatile long population = 0;
+    private volatile long lastChangedCells = 0;
+    private int calls = SAMPLE_EVERY - 1; // step() calls since the last sample (the first call is sampled). Threads can miss each other's changes, but that only moves the next sample a bit
+
+    private final com.sun.management.ThreadMXBean threads = allocationCounter();
+    private ScheduledExecutorService writer; // writes the Prometheus file every so often (null if it isn't)
+    private Path file; // the file it writes
+    private final AtomicReference<IOException> lastError = new AtomicReference<>(); // the last thing that went wrong writing the file
+    private ObjectName registeredAs; // the name given to JMX by register(), or null
+
+    // the JVM's counter of memory allocated by each thread, or null if it hasn't got one
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                return bean;
+            }
+        }
+        return null;
+    }
+
+    // whether this step() call should be sampled (see the top of the file)
+    boolean shouldSample() {
+        if (++calls < SAMPLE_EVERY) {
+            return false;
+        }
+        calls = 0;
+        return true;
+    }
+
+    // the memory the current thread has allocated so far, or -1 if it can't be found out
+    long allocatedSoFar() {
+        return threads == null ? -1 : threads.getCurrentThreadAllocatedBytes();
+    }
+
+    // a step() call that worked out 'generationsStepped' generations of a board with 'cells' cells
+    public void recordStep(long generationsStepped, long cells) {
+        generations.add(generationsStepped);
+        cellUpdates.add(generationsStepped * cells);
+    }
+
+    /* What was measured on a sampled step() call (as well as recordStep()). It took 'nanos' nanoseconds, 'changed' is
+     * the amount of cells that changed in the last generation (or -1 if it isn't known) and 'allocated' is the memory
+     * allocated during the call (or -1 if it isn't known).
+     */
+    public void recordSample(long generationsStepped, long nanos, long livePopulation, long changed, long allocated) {
+        timedGenerations.add(generationsStepped);
+        timedNanos.add(nanos);
+        if (generationsStepped > 0) {
+            // the generations since the last sample are guessed to have taken as long each as the ones in this call
+            long generationCount = generations.sum();
+            long since = Math.max(generationCount - generationsAtSample, generationsStepped);
+            generationsAtSample = generationCount;
+            stepNanos.add((long) ((double) nanos / generationsStepped * since));
+        }
+        population = livePopulation;
+        if (changed >= 0) {
+            lastChangedCells = changed;
+            changedCells.add(changed);
+            changedSamples.increment();
+        }
+        if (allocated >= 0 && generationsStepped > 0) {
+            allocatedBytes.add(allocated);
+            allocationGenerations.add(generationsStepped);
+        }
+    }
+
+    // the population can also be set when it is already known (e.g. after a board is loaded)
+    public void recordPopulation(long livePopulation) {
+        population = livePopulation;
+    }
+
+    public void recordRender(long nanos) {
+        renderNanos.add(nanos);
+        renders.increment();
+    }
+
+    public void recordLoad(long nanos) {
+        loadNanos.add(nanos);
+        loads.increment();
+    }
+
+    public void recordSave(long nanos) {
+        saveNanos.add(nanos);
+        saves.increment();
+    }
+
+    @Override
+    public long getGenerations() {
+        return generations.sum();
+    }
+
+    @Override
+    public long getCellUpdates() {
+        return cellUpdates.sum();
+    }
+
+    @Override
+    public double getGenerationsPerSecond() {
+        long nanos = timedNanos.sum();
+        return nanos == 0 ? 0 : timedGenerations.sum() * NANOS_PER_SECOND / nanos;
+    }
+
+    // worked out from the generations per second, so a board that changes size part way through makes it less exact
+    @Override
+    public double getCellUpdatesPerSecond() {
+        long generationCount = generations.sum();
+        return generationCount == 0 ? 0 : getGenerationsPerSecond() * cellUpdates.sum() / generationCount;
+    }
+
+    @Override
+    public long getPopulation() {
+        return population;
+    }
+
+    @Override
+    public long getChangedCells() {
+        return lastChangedCells;
+    }
+
+    @Override
+    public double getAverageChangedCells() {
+        long samples = changedSamples.sum();
+        return samples == 0 ? 0 : (double) changedCells.sum() / samples;
+    }
+
+    @Override
+    public double getAllocatedBytesPerGeneration() {
+        long sampled = allocationGenerations.sum();
+        return sampled == 0 ? 0 : (double) allocatedBytes.sum() / sampled;
+    }
+
+    // estimated from the sampled calls (see the top of the file)
+    @Override
+    public double getStepSeconds() {
+        return stepNanos.sum() / NANOS_PER_SECOND;
+    }
+
+    @Override
+    public double getRenderSeconds() {
+        return renderNanos.sum() / NANOS_PER_SECOND;
+    }
+
+    @Override
+    public double getLoadSeconds() {
+        return loadNanos.sum() / NANOS_PER_SECOND;
+    }
+
+    @Override
+    public double getSaveSeconds() {
+        return saveNanos.sum() / NANOS_PER_SECOND;
+    }
+
+    @Override
+    public long getRenders() {
+        return renders.sum();
+    }
+
+    @Override
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    @Override
+    public long getSaves() {
+        return saves.sum();
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder adder : new LongAdder[] {generations, cellUpdates, timedGenerations, timedNanos, stepNanos, renderNanos, renders, loadNanos,
+                loads, saveNanos, saves, changedCells, changedSamples, allocatedBytes, allocationGenerations}) {
+            adder.reset();
+        }
+        generationsAtSample = 0;
+        population = 0;
+        lastChangedCells = 0;
+    }
+
+    // makes the metrics visible through JMX as OBJECT_NAME. Only one SimulationMetrics can be registered at a time
+    public void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        server.registerMBean(this, name);
+        registeredAs = name;
+    }
+
+    public void unregister() throws JMException {
+        if (registeredAs != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredAs);
+            registeredAs = null;
+        }
+    }
+
+    // everything in the Prometheus text format (version 0.0.4)
+    public String toPrometheus() {
+        StringBuilder text = new StringBuilder();
+        counter(text, "gol_generations_total", "Generations worked out.", getGenerations());
+        counter(text, "gol_cell_updates_total", "Cells worked out (the area of the board for each generation).", getCellUpdates());
+        gauge(text, "gol_generations_per_second", "Generations per second while stepping.", getGenerationsPerSecond());
+        gauge(text, "gol_cell_updates_per_second", "Cells worked out per second while stepping.", getCellUpdatesPerSecond());
+        gauge(text, "gol_population", "Live cells the last time they were counted.", getPopulation());
+        gauge(text, "gol_changed_cells", "Cells that changed in the last generation that was looked at.", getChangedCells());
+        gauge(text, "gol_changed_cells_average", "Cells that changed per generation, out of the generations that were looked at.", getAverageChangedCells());
+        gauge(text, "gol_allocated_bytes_per_generation", "Memory allocated by the stepping thread per generation.", getAllocatedBytesPerGeneration());
+        header(text, "gol_seconds_total", "Time spent on each part of the run.", "counter");
+        sample(text, "gol_seconds_total{part=\"step\"}", getStepSeconds());
+        sample(text, "gol_seconds_total{part=\"render\"}", getRenderSeconds());
+        sample(text, "gol_seconds_total{part=\"load\"}", getLoadSeconds());
+        sample(text, "gol_seconds_total{part=\"save\"}", getSaveSeconds());
+        header(text, "gol_operations_total", "How many times the board was drawn, loaded and saved.", "counter");
+        sample(text, "gol_operations_total{operation=\"render\"}", getRenders());
+        sample(text, "gol_operations_total{operation=\"load\"}", getLoads());
+        sample(text, "gol_operations_total{operation=\"save\"}", getSaves());
+        return text.toString();
+    }
+
+    private static void counter(StringBuilder text, String name, String help, double value) {
+        header(text, name, help, "counter");
+        sample(text, name, value);
+    }
+
+    private static void gauge(StringBuilder text, String name, String help, double value) {
+        header(text, name, help, "gauge");
+        sample(text, name, value);
+    }
+
+    private static void header(StringBuilder text, String name, String help, String type) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder text, String name, double value) {
+        text.append(name).append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            text.append((long) value); // whole numbers are written without ".0"
+        } else {
+            text.append(String.format(Locale.ROOT, "%.6g", value));
+        }
+        text.append('\n');
+    }
+
+    // writes toPrometheus() to 'file'. It is written to a temporary file first, so the file is never seen half written
+    public void writePrometheus(Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temporary, toPrometheus().getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // writes the file every 'everyMillis' milliseconds on a background thread, until close() (or stopWriting()) is called
+    public synchronized void startWriting(Path file, long everyMillis) {
+        if (everyMillis < 1) {
+            throw new IllegalArgumentException("The file has to be written at most every millisecond, not every " + everyMillis);
+        }
+        stopWriting();
+        this.file = file;
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-writer");
+            thread.setDaemon(true); // so that it doesn't stop the program from ending
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(() -> {
+            try {
+                writePrometheus(file);
+            } catch (IOException e) {
+                lastError.set(e); // the run carries on without the file rather than stopping
+            }
+        }, 0, everyMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // stops writing the file in the background, and writes it one last time so that it has the final numbers
+    public synchronized void stopWriting() {
+        if (writer == null) {
+            return;
+        }
+        ScheduledExecutorService stopping = writer;
+        writer = null;
+        stopping.shutdown();
+        try {
+            stopping.awaitTermination(1, TimeUnit.SECONDS); // in case it is part way through writing it
+            writePrometheus(file);
+        } catch (IOException e) {
+            lastError.set(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // the last error from writing the file in the background, or null if there hasn't been one
+    public IOException getLastError() {
+        return lastError.get();
+    }
+
+    @Override
+    public void close() {
+        stopWriting();
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * What SimulationMetrics shows through JMX (e.g. in JConsole or VisualVM, under main.java > SimulationMetrics).
+ * JMX finds the attributes from the getters in this interface, which has to be called the class name + "MBean".
+ */
+
+package main.java;
+
+public interface SimulationMetricsMBean {
+    long getGenerations(); // generations worked out
+
+    long getCellUpdates(); // cells worked out (the area of the board for each generation)
+
+    double getGenerationsPerSecond(); // while stepping (time spent drawing or waiting between turns doesn't count)
+
+    double getCellUpdatesPerSecond();
+
+    long getPopulation(); // live cells, the last time it was looked at
+
+    long getChangedCells(); // cells that changed in the last generation that was looked at
+
+    double getAverageChangedCells(); // cells that changed per generation, out of the generations that were looked at
+
+    double getAllocatedBytesPerGeneration(); // memory allocated by the stepping thread per generation
+
+    double getStepSeconds(); // total time spent stepping
+
+    double getRenderSeconds(); // total time spent drawing the board
+
+    double getLoadSeconds(); // total time spent reading boards from files
+
+    double getSaveSeconds(); // total time spent writing boards to files
+
+    long getRenders();
+
+    long getLoads();
+
+    long getSaves();
+
+    void reset(); // sets everything back to 0
+}
@@ -0,0 +1,602 @@
+/**
+ * Runs lots of boards (sessions) in one program so that other programs can drive them over HTTP, without the menus.
+ * It only listens on the loopback address (127.0.0.1), so only programs on the same computer can reach it.
+ *
+ * POST   /sessions?width=100&height=100&rule=B3/S23&topology=torus   makes an empty board (every option can be left out)
+ * POST   /sessions?format=gol   (with a .gol, .rle or .golb file as the body) makes a board from the file. Without
+ *                               format the format is worked out from the start of the file (see BoardFile)
+ * GET    /sessions/{id}                          the board's size, rule, generation, population and whether it has settled
+ * DELETE /sessions/{id}                          throws the board away
+ * POST   /sessions/{id}/step?generations=100     works out the next generations and then answers like GET /sessions/{id}
+ * GET    /sessions/{id}/region?row=0&column=0&width=64&height=64&states=false   the cells of a rectangle (see RegionFormat)
+ * PUT    /sessions/{id}/region?row=0&column=0    puts a region (in the body, see RegionFormat) onto the board
+ * POST   /sessions/{id}/cells                    sets cells: the body is any amount of (int row, int column, byte state)
+ * GET    /metrics                                the metrics of every session together, for Prometheus (see SimulationMetrics).
+ *                                               The counters and averages add up every session, but gol_population and
+ *                                               gol_changed_cells are from whichever session was sampled last
+ * Everything but the regions and cells is answered with JSON. Mistakes get 400 with the reason as text, unknown
+ * sessions get 404, and 503 means there are already as many sessions as allowed.
+ *
+ * Each request is handled on its own thread (a virtual thread when the Java version has them, so thousands of waiting
+ * requests don't need thousands of real threads). Those threads don't work out generations themselves: a step request
+ * is queued on its session, and the sessions with steps to do are queued for a small pool of step threads (one for
+ * each core by default). Each time a step thread takes a session it works out up to SLICE_CELLS cell updates for it
+ * (joining together all the step requests waiting on it), then the session goes to the back of the queue if it still
+ * has more to do. That keeps every core busy without a big board holding up all the small ones, and without more
+ * threads fighting over the cores than there are cores.
+ *
+ * Sessions have cycle detection on, so stepping a board that has settled down is quick however many generations are asked for.
+ * Its history starts small and only grows as a session is stepped (see CycleDetector), so an idle session costs
+ * little more than its grids.
+ *
+ * From the command line (every option can be left out):
+ * java -cp build/classes/java/main main.java.SimulationServer --port 8080 --threads 8 --max-sessions 10000
+ * or: gradle server --args="--port 8080"
+ */
+
+package main.java;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+
+public class SimulationServer {
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_MAX_SESSIONS = 10000;
+    public static final long MAX_CELLS = 1L << 26; // the biggest board that can be made (8MB of cells)
+    public static final int MAX_BODY = 64 << 20; // the biggest request body, in bytes
+    public static final long SLICE_CELLS = 1L << 24; // the amount of cell updates a step thread does for a session before moving on to the next one
+
+    private final HttpServer server;
+    private final ExecutorService requests; // the threads requests are handled on
+    private final ExecutorService stepThreads; // the threads generations are worked out on
+    private final int threads; // the amount of step threads
+    private final int maxSessions;
+    private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger sessionSlots = new AtomicInteger(0); // the sessions there are plus the ones being made, so there can't be more than maxSessions
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final ConcurrentLinkedQueue<Session> ready = new ConcurrentLinkedQueue<>(); // the sessions with steps to do
+    private final AtomicInteger running = new AtomicInteger(0); // the amount of step threads taking sessions from 'ready'
+    private final SimulationMetrics metrics;
+
+    // one board, and the steps waiting to be done on it. Everything in it is only used while holding its lock
+    private static final class Session {
+        final long id;
+        final Simulation simulation;
+        final ArrayDeque<StepRequest> steps = new ArrayDeque<>();
+        boolean queued = false; // whether it is in 'ready' (or being stepped)
+
+        Session(long id, Simulation simulation) {
+            this.id = id;
+            this.simulation = simulation;
+        }
+    }
+
+    private static final class StepRequest {
+        long remaining; // the generations still to do
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        StepRequest(long generations) {
+            remaining = generations;
+        }
+    }
+
+    // a mistake in a request, which is answered with 'status' and the message
+    private static final class RequestException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    // 'port' 0 picks any free port (see getPort())
+    public SimulationServer(int port, int threads, int maxSessions, SimulationMetrics metrics) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("There has to be at least 1 step thread, not " + threads);
+        }
+        this.threads = threads;
+        this.maxSessions = maxSessions;
+        this.metrics = metrics;
+        stepThreads = Executors.newFixedThreadPool(threads, daemonThreads("step-worker"));
+        requests = requestExecutor();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(requests);
+        server.createContext("/sessions", this::handle);
+        server.createContext("/metrics", this::handle);
+    }
+
+    /* A new virtual thread for each request if this version of Java has them (Java 21 and later). They are looked up
+     * by name so that this still builds and runs on Java 17, which gets ordinary threads that are reused instead.
+     */
+    private static ExecutorService requestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(daemonThreads("request"));
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger(0);
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true); // so they don't stop the program from ending
+            return thread;
+        };
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // stops taking requests, waiting up to 'delaySeconds' for the ones being handled to finish
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        requests.shutdown();
+        stepThreads.shutdown();
+        try {
+            stepThreads.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            route(exchange);
+        } catch (RequestException e) {
+            sendText(exchange, e.status, e.getMessage());
+        } catch (IllegalArgumentException e) { // a number that isn't a number, a cell that isn't on the board...
+            sendText(exchange, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            sendText(exchange, 500, e.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] parts = exchange.getRequestURI().getPath().split("/");
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        // parts[0] is the empty string before the first '/'
+        if (parts.length == 2 && parts[1].equals("metrics")) {
+            checkMethod(method, "GET");
+            send(exchange, 200, "text/plain; version=0.0.4", metrics == null ? new byte[0] : metrics.toPrometheus().getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        if (parts.length < 2 || !parts[1].equals("sessions") || parts.length > 4) {
+            throw new RequestException(404, "There is nothing at " + exchange.getRequestURI().getPath());
+        }
+        if (parts.length == 2) {
+            checkMethod(method, "POST");
+            Session session = create(query, readBody(exchange));
+            sendJson(exchange, 201, describe(session));
+            return;
+        }
+        Session session = find(parts[2]);
+        String action = parts.length == 4 ? parts[3] : "";
+        switch (action) {
+            case "":
+                if (method.equals("DELETE")) {
+                    if (sessions.remove(session.id) != null) { // two DELETEs at once only free its slot once
+                        sessionSlots.decrementAndGet();
+                    }
+                    send(exchange, 204, null, null);
+                    return;
+                }
+                checkMethod(method, "GET");
+                sendJson(exchange, 200, describe(session));
+                return;
+            case "step":
+                checkMethod(method, "POST");
+                step(session, Long.parseLong(query.getOrDefault("generations", "1")));
+                sendJson(exchange, 200, describe(session));
+                return;
+            case "region":
+                if (method.equals("PUT")) {
+                    putRegion(session, query, readBody(exchange));
+                    send(exchange, 204, null, null);
+                    return;
+                }
+                checkMethod(method, "GET");
+                send(exchange, 200, "application/octet-stream", getRegion(session, query));
+                return;
+            case "cells":
+                checkMethod(method, "POST");
+                setCells(session, readBody(exchange));
+                send(exchange, 204, null, null);
+                return;
+            default:
+                throw new RequestException(404, "Sessions don't have " + action);
+        }
+    }
+
+    private static void checkMethod(String method, String allowed) {
+        if (!method.equals(allowed)) {
+            throw new RequestException(405, method + " can't be used here, only " + allowed);
+        }
+    }
+
+    private Session find(String id) {
+        Session session;
+        try {
+            session = sessions.get(Long.parseLong(id));
+        } catch (NumberFormatException e) {
+            session = null;
+        }
+        if (session == null) {
+            throw new RequestException(404, "There is no session " + id);
+        }
+        return session;
+    }
+
+    // makes a session from the body (a board file), or an empty board if the body is empty
+    private Session create(Map<String, String> query, byte[] body) throws IOException {
+        // a slot is taken before the board is made, so creates at the same time can't all see room for one more
+        if (sessionSlots.incrementAndGet() > maxSessions) {
+            sessionSlots.decrementAndGet();
+            throw new RequestException(503, "There are already " + maxSessions + " sessions");
+        }
+        boolean created = false;
+        try {
+            Session session = createSession(query, body);
+            created = true;
+            return session;
+        } finally {
+            if (!created) {
+                sessionSlots.decrementAndGet(); // the slot is given back if the board couldn't be made
+            }
+        }
+    }
+
+    private Session createSession(Map<String, String> query, byte[] body) throws IOException {
+        Rule rule = query.containsKey("rule") ? Rule.parse(query.get("rule")) : Rule.CONWAY;
+        Topology topology = query.containsKey("topology") ? Topology.valueOf(query.get("topology").toUpperCase(Locale.ROOT)) : Topology.DEAD;
+        Simulation simulation;
+        if (body.length == 0) {
+            int width = Integer.parseInt(query.getOrDefault("width", "100"));
+            int height = Integer.parseInt(query.getOrDefault("height", "100"));
+            checkSize(width, height);
+            simulation = new Simulation(new BitGrid(width, height), rule, topology);
+        } else {
+            simulation = load(body, query.get("format"), rule);
+            if (simulation.getTopology() != topology) {
+                simulation = withTopology(simulation, topology);
+            }
+        }
+        simulation.setCycleDetection(true);
+        simulation.setMetrics(metrics);
+        Session session = new Session(nextId.getAndIncrement(), simulation);
+        sessions.put(session.id, session);
+        return session;
+    }
+
+    private static void checkSize(int width, int height) {
+        if (width < 1 || height < 1 || (long) width * height > MAX_CELLS) {
+            throw new RequestException(400, "Boards have to be at least 1x1 and at most " + MAX_CELLS + " cells, not " + width + "x" + height);
+        }
+    }
+
+    /* The formats all load from files, so the body is written to a temporary file first. Its extension tells BoardFile
+     * the format, or if there isn't one, BoardFile works it out from the start of the file.
+     */
+    private Simulation load(byte[] body, String format, Rule golRule) throws IOException {
+        String extension;
+        if (format == null) {
+            extension = ".board";
+        } else if (format.equals("gol") || format.equals("rle") || format.equals("golb")) {
+            extension = "." + format;
+        } else {
+            throw new RequestException(400, "Unknown format " + format + " (it has to be gol, rle or golb)");
+        }
+        Path file = Files.createTempFile("session", extension);
+        long loadStart = System.nanoTime();
+        try {
+            Files.write(file, body);
+            int[] size = BoardFile.readSize(file); // the size is checked before the board is made, because a tiny file can say it is huge
+            checkSize(size[0], size[1]);
+            return BoardFile.load(file, golRule);
+        } catch (IOException e) {
+            throw new RequestException(400, "The board couldn't be loaded: " + e.getMessage());
+        } finally {
+            Files.deleteIfExists(file);
+            if (metrics != null) {
+                metrics.recordLoad(System.nanoTime() - loadStart);
+            }
+        }
+    }
+
+    // the board and its rule on a new board with different edges
+    private static Simulation withTopology(Simulation board, Topology topology) {
+        Simulation copy = new Simulation(new BitGrid(board.getWidth(), board.getHeight()), board.getRule(), topology);
+        for (int i = 0; i < board.getHeight(); i++) {
+            for (int j = 0; j < board.getWidth(); j++) {
+                int state = board.getState(i, j);
+                if (state != 0) {
+                    copy.setState(i, j, state);
+                }
+            }
+        }
+        copy.setGeneration(board.getGeneration());
+        return copy;
+    }
+
+    // queues the steps on the session and waits for the step threads to do them
+    private void step(Session session, long generations) {
+        if (generations < 0) {
+            throw new RequestException(400, "The amount of generations can't be negative, not " + generations);
+        }
+        if (generations == 0) {
+            return;
+        }
+        StepRequest request = new StepRequest(generations);
+        synchronized (session) {
+            session.steps.add(request);
+            if (!session.queued) {
+                session.queued = true;
+                ready.add(session);
+            }
+        }
+        startStepThread();
+        try {
+            request.done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RequestException(503, "The server is stopping");
+        } catch (ExecutionException e) {
+            throw new RequestException(500, "The generations couldn't be worked out: " + e.getCause());
+        }
+    }
+
+    // starts another step thread if there are less than 'threads' running
+    private void startStepThread() {
+        while (true) {
+            int now = running.get();
+            if (now >= threads) {
+                return;
+            }
+            if (running.compareAndSet(now, now + 1)) {
+                stepThreads.execute(this::stepSessions);
+                return;
+            }
+        }
+    }
+
+    // what each step thread does: takes sessions from the queue until it is empty
+    private void stepSessions() {
+        while (true) {
+            Session session = ready.poll();
+            if (session != null) {
+                stepSlice(session);
+                continue;
+            }
+            running.decrementAndGet();
+            // a session could have been queued after poll() found nothing but before this thread stopped counting
+            // itself, when startStepThread() thought there were enough threads already
+            if (ready.isEmpty()) {
+                return;
+            }
+            int now = running.get();
+            if (now >= threads || !running.compareAndSet(now, now + 1)) {
+                return; // another thread is taking sessions, or is about to
+            }
+        }
+    }
+
+    // works out up to SLICE_CELLS cell updates of the session's waiting steps
+    private void stepSlice(Session session) {
+        List<StepRequest> finished = new ArrayList<>();
+        synchronized (session) {
+            Simulation simulation = session.simulation;
+            long budget = Math.max(1, SLICE_CELLS / ((long) simulation.getWidth() * simulation.getHeight())); // generations
+            try {
+                while (budget > 0 && !session.steps.isEmpty()) {
+                    StepRequest request = session.steps.peek();
+                    long generations = Math.min(request.remaining, budget);
+                    simulation.step(generations);
+                    request.remaining -= generations;
+                    budget -= generations;
+                    if (request.remaining == 0) {
+                        finished.add(session.steps.poll());
+                    }
+                }
+            } catch (RuntimeException e) {
+                for (StepRequest request : session.steps) {
+                    request.done.completeExceptionally(e);
+                }
+                session.steps.clear();
+            }
+            if (session.steps.isEmpty()) {
+                session.queued = false;
+            } else {
+                ready.add(session); // to the back of the queue, so the other sessions get a turn
+            }
+        }
+        for (StepRequest request : finished) {
+            request.done.complete(null); // done outside the lock, so the request thread doesn't have to wait for it
+        }
+    }
+
+    private static String describe(Session session) {
+        synchronized (session) {
+            Simulation simulation = session.simulation;
+            return "{\"id\":" + session.id
+                    + ",\"width\":" + simulation.getWidth()
+                    + ",\"height\":" + simulation.getHeight()
+                    + ",\"rule\":\"" + simulation.getRule()
+                    + "\",\"topology\":\"" + simulation.getTopology().name().toLowerCase(Locale.ROOT)
+                    + "\",\"generation\":" + simulation.getGeneration()
+                    + ",\"population\":" + simulation.getPopulation()
+                    + ",\"settled\":" + simulation.isSettled()
+                    + ",\"period\":" + simulation.getCycleDetector().getPeriod() + "}";
+        }
+    }
+
+    private static byte[] getRegion(Session session, Map<String, String> query) throws IOException {
+        int row = Integer.parseInt(query.getOrDefault("row", "0"));
+        int column = Integer.parseInt(query.getOrDefault("column", "0"));
+        byte encoding = Boolean.parseBoolean(query.getOrDefault("states", "false")) ? RegionFormat.STATES : RegionFormat.BITS;
+        synchronized (session) {
+            Simulation simulation = session.simulation;
+            int width = query.containsKey("width") ? Integer.parseInt(query.get("width")) : simulation.getWidth() - column;
+            int height = query.containsKey("height") ? Integer.parseInt(query.get("height")) : simulation.getHeight() - row;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) Math.min(RegionFormat.size(Math.max(width, 0), Math.max(height, 0), encoding), 1 << 20));
+            DataOutputStream out = new DataOutputStream(bytes);
+            RegionFormat.write(out, simulation, row, column, width, height, encoding);
+            out.flush();
+            return bytes.toByteArray();
+        }
+    }
+
+    private static void putRegion(Session session, Map<String, String> query, byte[] body) {
+        int row = Integer.parseInt(query.getOrDefault("row", "0"));
+        int column = Integer.parseInt(query.getOrDefault("column", "0"));
+        synchronized (session) {
+            try {
+                RegionFormat.read(new DataInputStream(new ByteArrayInputStream(body)), session.simulation, row, column);
+            } catch (IOException e) { // the body can only be read wrongly if it isn't a region
+                throw new RequestException(400, "The region couldn't be read: " + e);
+            }
+        }
+    }
+
+    // the body is (int row, int column, byte state) for each cell. They are all checked before any are set
+    private static void setCells(Session session, byte[] body) {
+        if (body.length % 9 != 0) {
+            throw new RequestException(400, "Each cell takes 9 bytes, but there were " + body.length);
+        }
+        ByteBuffer cells = ByteBuffer.wrap(body);
+        synchronized (session) {
+            Simulation simulation = session.simulation;
+            int states = simulation.getRule().getStates();
+            for (int k = 0; k < body.length; k += 9) {
+                int row = cells.getInt(k);
+                int column = cells.getInt(k + 4);
+                int state = cells.get(k + 8) & 0xFF;
+                if (row < 0 || row >= simulation.getHeight() || column < 0 || column >= simulation.getWidth() || state >= states) {
+                    throw new RequestException(400, "Cell (" + row + ", " + column + ") can't be set to " + state);
+                }
+            }
+            for (int k = 0; k < body.length; k += 9) {
+                simulation.setState(cells.getInt(k), cells.getInt(k + 4), cells.get(k + 8) & 0xFF);
+            }
+        }
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY + 1);
+            if (body.length > MAX_BODY) {
+                throw new RequestException(413, "The body can't be more than " + MAX_BODY + " bytes");
+            }
+            return body;
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> values = new HashMap<>();
+        if (query == null) {
+            return values;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                values.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return values;
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        send(exchange, status, "application/json", json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        send(exchange, status, "text/plain; charset=utf-8", String.valueOf(text).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // a null or empty body sends no body at all
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        if (contentType != null) {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+        }
+        boolean empty = body == null || body.length == 0;
+        exchange.sendResponseHeaders(status, empty ? -1 : body.length);
+        if (!empty) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxSessions = DEFAULT_MAX_SESSIONS;
+        for (int k = 0; k < args.length; k += 2) {
+            if (k + 1 >= args.length) {
+                throw new IllegalArgumentException(args[k] + " needs a value after it");
+            }
+            String value = args[k + 1];
+            switch (args[k]) {
+                case "--port": port = Integer.parseInt(value); break;
+                case "--threads": threads = Integer.parseInt(value); break;
+                case "--max-sessions": maxSessions = Integer.parseInt(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[k]);
+            }
+        }
+
+        SimulationMetrics metrics = new SimulationMetrics();
+        try {
+            metrics.register(); // so the metrics can be seen in JConsole or VisualVM
+        } catch (JMException e) {
+            System.err.println("The metrics can't be shown through JMX: " + e.getMessage());
+        }
+        SimulationServer server = new SimulationServer(port, threads, maxSessions, metrics);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+        System.err.println("Listening on http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getPort() + "/sessions with " + threads + " step threads and the " + BitGrid.kernelName() + " kernel");
+    }
+}
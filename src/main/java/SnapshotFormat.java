@@ -0,0 +1,235 @@
+/**
+ * A binary snapshot of a board, which is about 8 times smaller than a .gol file (one bit per cell instead of one
+ * character), and much smaller than that for boards that are mostly empty.
+ *
+ * The layout of the file is:
+ * "GOLB"             4 bytes that mark the file as a snapshot
+ * version            1 byte (VERSION)
+ * flags              1 byte. Bit 0 means the words are compressed (see below). Bits 1 and 2 are the Topology
+ *                    (0 is DEAD, so snapshots from before topologies were added still load the same)
+ * width, height      4 bytes each
+ * generation         8 bytes
+ * rule               2 bytes for the length, then the rule written like "B3/S23" (or "B2/S/3" for a Generations rule)
+ * words              the words of the BitGrid of live cells, row after row (8 bytes each)
+ * dying cells        only for Generations rules: 4 bytes for the amount of dying cells, then for each one its index
+ *                    (row * width + column, 4 bytes) and its state (1 byte)
+ * checksum           4 bytes, the CRC32 of everything before it
+ *
+ * When the words are compressed, they are split into tiles of TILE_WORDS words. Each tile starts with 8 bytes that
+ * have a bit set for every word in the tile that isn't 0, and then only those words are written. An empty tile
+ * (64 words, 4096 dead cells) takes up 8 bytes.
+ * If the checksum doesn't match when the file is read, the file is rejected, so a file that was only half written is never loaded.
+ */
+
+package main.java;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+public class SnapshotFormat {
+    public static final byte[] MAGIC = {'G', 'O', 'L', 'B'};
+    public static final int VERSION = 1;
+    public static final int FLAG_COMPRESSED = 1;
+    public static final int TOPOLOGY_SHIFT = 1; // the topology's ordinal is in the flags, starting at this bit
+    public static final int TOPOLOGY_MASK = 3;
+    public static final int TILE_WORDS = 64; // the amount of words in each compressed tile (one bit for each in the tile's mask)
+
+    private SnapshotFormat() {
+    }
+
+    // reads a snapshot into a new Simulation, which carries on from the generation the snapshot was saved at
+    public static Simulation read(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(Files.newInputStream(file)), crc);
+             DataInputStream in = new DataInputStream(checked)) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException(file + " isn't a snapshot");
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException(file + " is a version " + version + " snapshot, but only version " + VERSION + " can be read");
+            }
+            int flags = in.readUnsignedByte();
+            int topologyNumber = (flags >>> TOPOLOGY_SHIFT) & TOPOLOGY_MASK;
+            if (topologyNumber >= Topology.values().length) {
+                throw new IOException(file + " has edges that aren't one of the known topologies");
+            }
+            Topology topology = Topology.values()[topologyNumber];
+            int width = in.readInt();
+            int height = in.readInt();
+            long generation = in.readLong();
+            byte[] ruleBytes = new byte[in.readUnsignedShort()];
+            in.readFully(ruleBytes);
+            Rule rule;
+            try {
+                rule = Rule.parse(new String(ruleBytes, StandardCharsets.US_ASCII));
+            } catch (IllegalArgumentException e) {
+                throw new IOException(file + " has a rule that can't be read: " + e.getMessage(), e);
+            }
+            if (width < 1 || height < 1) {
+                throw new IOException(file + " has a size of " + width + "x" + height);
+            }
+            // the grid is only made if the file is big enough to hold it, so a damaged (or made up) size in a small file
+            // is found before the memory for it is, not when the checksum is checked at the end
+            long wordCount = (long) ((width + BitGrid.WORD_SIZE - 1) / BitGrid.WORD_SIZE) * height;
+            long smallest = (flags & FLAG_COMPRESSED) != 0 ? (wordCount + TILE_WORDS - 1) / TILE_WORDS * 8 : wordCount * 8;
+            if (wordCount > Integer.MAX_VALUE - 8 || Files.size(file) < smallest) {
+                throw new IOException(file + " is too small to hold a " + width + "x" + height + " board");
+            }
+
+            BitGrid grid = new BitGrid(width, height);
+            long[] words = grid.getWords();
+            if ((flags & FLAG_COMPRESSED) != 0) {
+                for (int tile = 0; tile < words.length; tile += TILE_WORDS) {
+                    long mask = in.readLong();
+                    for (; mask != 0; mask &= mask - 1) { // goes through the set bits of the mask, lowest first
+                        int index = tile + Long.numberOfTrailingZeros(mask);
+                        if (index >= words.length) {
+                            throw new IOException(file + " has a tile that goes past the end of the grid");
+                        }
+                        words[index] = in.readLong();
+                    }
+                }
+            } else {
+                for (int i = 0; i < words.length; i++) {
+                    words[i] = in.readLong();
+                }
+            }
+            // the bits past the width in the last word of each row are never cells, and BitGrid counts on them being 0
+            // (population() would count them, and stepping would spread them onto the board), so a file with any set is damaged
+            int wordsPerRow = grid.getWordsPerRow();
+            int tail = width % BitGrid.WORD_SIZE;
+            if (tail != 0) {
+                long padding = -1L << tail;
+                for (int last = wordsPerRow - 1; last < words.length; last += wordsPerRow) {
+                    if ((words[last] & padding) != 0) {
+                        throw new IOException(file + " has cells past the right edge of the board in row " + last / wordsPerRow);
+                    }
+                }
+            }
+            Simulation simulation = new Simulation(grid, rule, topology);
+            if (rule.isGenerations()) {
+                int dying = in.readInt();
+                for (int k = 0; k < dying; k++) {
+                    long index = in.readInt() & 0xFFFFFFFFL;
+                    int state = in.readUnsignedByte();
+                    if (index >= (long) width * height || state < 2 || state >= rule.getStates()) {
+                        throw new IOException(file + " has a dying cell that isn't valid");
+                    }
+                    simulation.setState((int) (index / width), (int) (index % width), state);
+                }
+            }
+            int expected = (int) crc.getValue(); // the checksum of everything read so far (before the checksum itself is read)
+            if (in.readInt() != expected) {
+                throw new IOException(file + " is damaged (its checksum doesn't match)");
+            }
+            simulation.setGeneration(generation);
+            return simulation;
+        } catch (EOFException e) {
+            throw new IOException(file + " ends too early", e);
+        }
+    }
+
+    // the width and height of the board in the snapshot, read from just the start of the file
+    public static int[] readSize(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException(file + " isn't a snapshot");
+            }
+            in.readUnsignedByte(); // the version
+            in.readUnsignedByte(); // the flags
+            return new int[] {in.readInt(), in.readInt()};
+        } catch (EOFException e) {
+            throw new IOException(file + " ends too early", e);
+        }
+    }
+
+    public static void write(Path file, Simulation simulation) throws IOException {
+        Engine engine = simulation.getEngine();
+        byte[] states = engine instanceof GenerationsEngine ? ((GenerationsEngine) engine).getStates() : null;
+        write(file, simulation.snapshot(), simulation.getGeneration(), simulation.getRule(), simulation.getTopology(), states, true);
+    }
+
+    public static void write(Path file, BitGrid grid, long generation, boolean compressed) throws IOException {
+        write(file, grid, generation, Rule.CONWAY, Topology.DEAD, null, compressed);
+    }
+
+    /* 'grid' has the live cells. For a Generations rule, 'states' has the state of every cell, row after row (like
+     * GenerationsEngine.getStates()), so the dying cells can be saved too. For other rules it isn't used and can be null.
+     */
+    public static void write(Path file, BitGrid grid, long generation, Rule rule, Topology topology, byte[] states, boolean compressed) throws IOException {
+        if (rule.isGenerations() && (states == null || states.length != grid.getWidth() * grid.getHeight())) {
+            throw new IllegalArgumentException("The states of the cells are needed to save a board with the rule " + rule);
+        }
+        CRC32 crc = new CRC32();
+        try (CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(file)), crc);
+             DataOutputStream out = new DataOutputStream(checked)) {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte((compressed ? FLAG_COMPRESSED : 0) | topology.ordinal() << TOPOLOGY_SHIFT);
+            out.writeInt(grid.getWidth());
+            out.writeInt(grid.getHeight());
+            out.writeLong(generation);
+            byte[] ruleBytes = rule.toString().getBytes(StandardCharsets.US_ASCII);
+            out.writeShort(ruleBytes.length);
+            out.write(ruleBytes);
+
+            long[] words = grid.getWords();
+            if (compressed) {
+                for (int tile = 0; tile < words.length; tile += TILE_WORDS) {
+                    int end = Math.min(tile + TILE_WORDS, words.length);
+                    long mask = 0;
+                    for (int i = tile; i < end; i++) {
+                        if (words[i] != 0) {
+                            mask |= 1L << (i - tile);
+                        }
+                    }
+                    out.writeLong(mask);
+                    for (; mask != 0; mask &= mask - 1) {
+                        out.writeLong(words[tile + Long.numberOfTrailingZeros(mask)]);
+                    }
+                }
+            } else {
+                for (long word : words) {
+                    out.writeLong(word);
+                }
+            }
+            if (rule.isGenerations()) {
+                int dying = 0;
+                for (byte state : states) {
+                    if ((state & 0xFF) > 1) {
+                        dying++;
+                    }
+                }
+                out.writeInt(dying);
+                for (int index = 0; index < states.length; index++) {
+                    if ((states[index] & 0xFF) > 1) {
+                        out.writeInt(index);
+                        out.writeByte(states[index]);
+                    }
+                }
+            }
+            out.flush();
+            out.writeInt((int) crc.getValue());
+        }
+    }
+
+    // whether the file starts with the snapshot marker
+    public static boolean hasMagic(byte[] start) {
+        return start.length >= MAGIC.length && Arrays.equals(Arrays.copyOf(start, MAGIC.length), MAGIC);
+    }
+}
@@ -0,0 +1,326 @@
+/**
+ * Runs lots of random boards (soups) to see what they turn into, without any of the menus.
+ * Each soup is run until it settles down (it gets back to a board it has already been, so from then on it repeats
+ * forever) or until it has run for the most generations allowed. For each soup the results are:
+ * soup                the number of the soup (soups are numbered from 0)
+ * seed                the seed its cells were made from, so that any soup can be made again
+ * initial_population  the live cells it started with
+ * stabilised          whether it settled down before the last generation allowed
+ * generation          the generation it settled down at (the first generation of the repeating cycle)
+ * period              how many generations the cycle is (1 for a board that doesn't change, 0 if it didn't settle down)
+ * final_population    the live cells at the end
+ * objects             the amount of separate groups of live cells at the end (cells that touch, even diagonally, are one group)
+ *
+ * The soups are run in batches on a ForkJoinPool (a thread that runs out of batches takes them from the others).
+ * Each thread reuses the same grids for every soup, so nothing is allocated per generation. The results are passed
+ * on in the order of the soups (not the order they finished in), so the output is the same however many threads are used.
+ *
+ * Whether a board has been seen before is worked out by a CycleDetector, which keeps the hashes of the last
+ * --max-period generations (CycleDetector.DEFAULT_HISTORY unless it is given). A soup that ends up going round a longer
+ * cycle than that counts as not settling down. The history isn't sized to --max-generations, because each thread has
+ * its own, and a history of millions of generations would take tens of MB per thread.
+ *
+ * From the command line (every option can be left out):
+ * java -cp build/classes/java/main main.java.SoupSearch --soups 100000 --seed 1 --size 64 --max-period 1024 --output soups.csv
+ * or: gradle soupSearch --args="--soups 100000 --output soups.jsonl"
+ * Files ending in .jsonl get one JSON object per line. Anything else gets CSV. Without --output, CSV is printed.
+ */
+
+package main.java;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+public class SoupSearch {
+    public static final int DEFAULT_SIZE = 64;
+    public static final double DEFAULT_DENSITY = 0.5;
+    public static final long DEFAULT_MAX_GENERATIONS = 10000;
+    public static final int DEFAULT_MAX_PERIOD = CycleDetector.DEFAULT_HISTORY; // the longest cycle that is found
+    public static final int BATCH_SIZE = 64; // the amount of soups handed to a thread at a time
+    public static final int BATCHES_PER_THREAD = 4; // how many batches can be running or waiting to be written for each thread
+    public static final String CSV_HEADER = "soup,seed,initial_population,stabilised,generation,period,final_population,objects";
+
+    private final int size; // the soups are size x size
+    private final double density; // the chance of each cell starting alive
+    private final Rule rule;
+    private final Topology topology;
+    private final long maxGenerations;
+    private final int maxPeriod; // the history of each thread's CycleDetector
+    private final long seed; // the seed of the whole search. Each soup's seed is made from this and the soup's number
+    private final ThreadLocal<Worker> workers; // the grids and tables each thread reuses
+
+    public SoupSearch(int size, double density, Rule rule, Topology topology, long maxGenerations, long seed) {
+        this(size, density, rule, topology, maxGenerations, DEFAULT_MAX_PERIOD, seed);
+    }
+
+    public SoupSearch(int size, double density, Rule rule, Topology topology, long maxGenerations, int maxPeriod, long seed) {
+        if (rule.isGenerations()) {
+            throw new IllegalArgumentException("Soups can't be searched with Generations rules like " + rule);
+        }
+        if (density < 0 || density > 1) {
+            throw new IllegalArgumentException("The density has to be between 0 and 1, not " + density);
+        }
+        if (maxGenerations < 1 || maxGenerations > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("The most generations has to be between 1 and " + Integer.MAX_VALUE / 2 + ", not " + maxGenerations);
+        }
+        if (maxPeriod < 1 || maxPeriod > CycleDetector.MAX_HISTORY) {
+            throw new IllegalArgumentException("The longest period has to be between 1 and " + CycleDetector.MAX_HISTORY + ", not " + maxPeriod);
+        }
+        this.size = size;
+        this.density = density;
+        this.rule = rule;
+        this.topology = topology;
+        this.maxGenerations = maxGenerations;
+        this.maxPeriod = maxPeriod;
+        this.seed = seed;
+        workers = ThreadLocal.withInitial(Worker::new);
+    }
+
+    // the results for one soup
+    public static final class Result {
+        public final long soup;
+        public final long seed;
+        public final long initialPopulation;
+        public final boolean stabilised;
+        public final long generation;
+        public final long period;
+        public final long finalPopulation;
+        public final int objects;
+
+        Result(long soup, long seed, long initialPopulation, boolean stabilised, long generation, long period, long finalPopulation, int objects) {
+            this.soup = soup;
+            this.seed = seed;
+            this.initialPopulation = initialPopulation;
+            this.stabilised = stabilised;
+            this.generation = generation;
+            this.period = period;
+            this.finalPopulation = finalPopulation;
+            this.objects = objects;
+        }
+
+        // one line of CSV, in the same order as CSV_HEADER
+        public String toCsv() {
+            return soup + "," + seed + "," + initialPopulation + "," + stabilised + "," + generation + "," + period + "," + finalPopulation + "," + objects;
+        }
+
+        public String toJson() {
+            return "{\"soup\":" + soup + ",\"seed\":" + seed + ",\"initial_population\":" + initialPopulation + ",\"stabilised\":" + stabilised
+                    + ",\"generation\":" + generation + ",\"period\":" + period + ",\"final_population\":" + finalPopulation + ",\"objects\":" + objects + "}";
+        }
+    }
+
+    // the seed of soup number 'soup'. Neighbouring numbers get very different seeds (this is the SplitMix64 mixing function)
+    public long seedOf(long soup) {
+        long z = seed + (soup + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // the starting board of soup number 'soup'
+    public BitGrid makeSoup(long soup) {
+        BitGrid grid = new BitGrid(size, size);
+        fill(grid, seedOf(soup));
+        return grid;
+    }
+
+    // runs one soup. This can be called from any thread
+    public Result run(long soup) {
+        return workers.get().run(soup);
+    }
+
+    /* Runs soups 'first' to 'first + count - 1' on 'pool' and gives the results to 'results' in order of the soups.
+     * 'results' is only ever called from the thread that called search().
+     */
+    public void search(long first, long count, ForkJoinPool pool, Consumer<Result> results) {
+        ArrayDeque<ForkJoinTask<Result[]>> running = new ArrayDeque<>();
+        int mostRunning = pool.getParallelism() * BATCHES_PER_THREAD; // so that the finished results waiting to be written can't pile up
+        for (long start = first; start < first + count; start += BATCH_SIZE) {
+            long batchStart = start;
+            int batchSize = (int) Math.min(BATCH_SIZE, first + count - start);
+            running.add(pool.submit(() -> runBatch(batchStart, batchSize)));
+            if (running.size() >= mostRunning) {
+                pass(running.poll().join(), results); // the oldest batch is written while the others carry on
+            }
+        }
+        while (!running.isEmpty()) {
+            pass(running.poll().join(), results);
+        }
+    }
+
+    private Result[] runBatch(long start, int batchSize) {
+        Worker worker = workers.get();
+        Result[] batch = new Result[batchSize];
+        for (int k = 0; k < batchSize; k++) {
+            batch[k] = worker.run(start + k);
+        }
+        return batch;
+    }
+
+    private static void pass(Result[] batch, Consumer<Result> results) {
+        for (Result result : batch) {
+            results.accept(result);
+        }
+    }
+
+    private void fill(BitGrid grid, long soupSeed) {
+        SplittableRandom random = new SplittableRandom(soupSeed);
+        long[] words = grid.getWords();
+        int wordsPerRow = grid.getWordsPerRow();
+        for (int row = 0; row < size; row++) {
+            for (int w = 0; w < wordsPerRow; w++) {
+                int cells = Math.min(BitGrid.WORD_SIZE, size - w * BitGrid.WORD_SIZE);
+                long word = 0;
+                if (density == 0.5) { // every bit of a random long is alive with a chance of a half, so 64 cells are made at once
+                    word = random.nextLong();
+                } else {
+                    for (int bit = 0; bit < cells; bit++) {
+                        if (random.nextDouble() < density) {
+                            word |= 1L << bit;
+                        }
+                    }
+                }
+                words[row * wordsPerRow + w] = cells == BitGrid.WORD_SIZE ? word : word & ((1L << cells) - 1);
+            }
+        }
+    }
+
+    // the amount of groups of live cells (cells that touch each other, even at the corners, are in the same group)
+    static int countObjects(BitGrid grid, BitGrid seen, int[] stack) {
+        seen.clear();
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        int objects = 0;
+        long[] words = grid.getWords();
+        int wordsPerRow = grid.getWordsPerRow();
+        for (int i = 0; i < words.length; i++) {
+            for (long bits = words[i]; bits != 0; bits &= bits - 1) {
+                int row = i / wordsPerRow;
+                int column = (i % wordsPerRow) * BitGrid.WORD_SIZE + Long.numberOfTrailingZeros(bits);
+                if (seen.get(row, column)) {
+                    continue;
+                }
+                objects++;
+                // a flood fill from this cell marks the whole group as seen
+                int top = 0;
+                stack[top++] = row * width + column;
+                seen.set(row, column, true);
+                while (top > 0) {
+                    int cell = stack[--top];
+                    int r = cell / width;
+                    int c = cell % width;
+                    for (int countI = -1; countI < 2; countI++) {
+                        for (int countJ = -1; countJ < 2; countJ++) {
+                            int nr = r + countI;
+                            int nc = c + countJ;
+                            if (nr >= 0 && nr < height && nc >= 0 && nc < width && grid.get(nr, nc) && !seen.get(nr, nc)) {
+                                seen.set(nr, nc, true);
+                                stack[top++] = nr * width + nc;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return objects;
+    }
+
+    // the grids and the cycle detector that one thread reuses for every soup it runs
+    private class Worker {
+        private BitGrid grid = new BitGrid(size, size);
+        private BitGrid next = new BitGrid(size, size);
+        private final BitGrid seen = new BitGrid(size, size); // for countObjects()
+        private final int[] stack = new int[size * size]; // for countObjects(). Each cell is only put on it once
+        private final CycleDetector cycles = new CycleDetector(size, size, rule, maxPeriod);
+
+        Result run(long soup) {
+            long soupSeed = seedOf(soup);
+            fill(grid, soupSeed);
+            long initialPopulation = grid.population();
+            cycles.start(grid, 0);
+            boolean stabilised = false;
+            long generation = maxGenerations;
+            long period = 0;
+            for (int t = 1; t <= maxGenerations; t++) {
+                grid.step(next, rule, topology);
+                BitGrid old = grid;
+                grid = next;
+                next = old;
+                if (cycles.observe(grid, next)) { // the old grid is the generation before
+                    stabilised = true;
+                    generation = cycles.getCycleStart();
+                    period = cycles.getPeriod();
+                    break;
+                }
+            }
+            return new Result(soup, soupSeed, initialPopulation, stabilised, generation, period, grid.population(), countObjects(grid, seen, stack));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        long soups = 10000;
+        long first = 0;
+        long seed = 1;
+        int size = DEFAULT_SIZE;
+        double density = DEFAULT_DENSITY;
+        long maxGenerations = DEFAULT_MAX_GENERATIONS;
+        int maxPeriod = DEFAULT_MAX_PERIOD;
+        Rule rule = Rule.CONWAY;
+        Topology topology = Topology.DEAD;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String output = null;
+        for (int k = 0; k < args.length; k += 2) {
+            if (k + 1 >= args.length) {
+                throw new IllegalArgumentException(args[k] + " needs a value after it");
+            }
+            String value = args[k + 1];
+            switch (args[k]) {
+                case "--soups": soups = Long.parseLong(value); break;
+                case "--first": first = Long.parseLong(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--size": size = Integer.parseInt(value); break;
+                case "--density": density = Double.parseDouble(value); break;
+                case "--max-generations": maxGenerations = Long.parseLong(value); break;
+                case "--max-period": maxPeriod = Integer.parseInt(value); break;
+                case "--rule": rule = Rule.parse(value); break;
+                case "--topology": topology = Topology.valueOf(value.toUpperCase(Locale.ROOT)); break;
+                case "--threads": threads = Integer.parseInt(value); break;
+                case "--output": output = value; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[k]);
+            }
+        }
+
+        SoupSearch search = new SoupSearch(size, density, rule, topology, maxGenerations, maxPeriod, seed);
+        boolean json = output != null && output.toLowerCase(Locale.ROOT).endsWith(".jsonl");
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        try (Writer out = output == null ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : Files.newBufferedWriter(Path.of(output), StandardCharsets.UTF_8)) {
+            if (!json) {
+                out.write(CSV_HEADER + "\n");
+            }
+            search.search(first, soups, pool, result -> {
+                try {
+                    out.write((json ? result.toJson() : result.toCsv()) + "\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("%d soups in %.2fs (%.0f soups/s, %s kernel)%n", soups, seconds, soups / seconds, BitGrid.kernelName());
+    }
+}
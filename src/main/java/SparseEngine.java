@@ -0,0 +1,99 @@
+/**
+ * An engine for a world with no edges that only stores the live cells. It suits patterns like a few gliders
+ * flying across a huge empty space, where a grid would spend almost all of its time on dead cells.
+ *
+ * Each generation, every live cell adds one to the neighbour count of the 8 cells around it. Only the cells that were
+ * counted can be alive next generation, so the time each generation takes depends on the population, not on how far
+ * apart the cells are. Positions are ints, so the world is 2^32 cells wide. Anything that goes off one side comes back
+ * on the other side.
+ * Any rule can be used as long as cells aren't born with 0 neighbours (then the whole infinite world would come alive)
+ * and it isn't a Generations rule.
+ */
+
+package main.java;
+
+public class SparseEngine implements Engine {
+    private static final int ALIVE = 16; // added to a cell's count (which is never more than 8) to remember that it is alive
+
+    private CellMap live = new CellMap(); // the live cells (every value is 1)
+    private CellMap next = new CellMap(); // where the next generation is put before it is swapped with 'live'
+    private final CellMap counts = new CellMap(); // the neighbour counts, reused every generation
+    private final Rule rule;
+
+    public SparseEngine() {
+        this(Rule.CONWAY);
+    }
+
+    public SparseEngine(Rule rule) {
+        if (rule.bornFromNothing() || rule.isGenerations()) {
+            throw new IllegalArgumentException(rule + " can't be used in a world with no edges");
+        }
+        this.rule = rule;
+    }
+
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+
+    @Override
+    public boolean getCell(int row, int column) {
+        return live.contains(CellMap.key(row, column));
+    }
+
+    @Override
+    public void setCell(int row, int column, boolean alive) {
+        if (alive) {
+            live.put(CellMap.key(row, column), 1);
+        } else {
+            live.remove(CellMap.key(row, column));
+        }
+    }
+
+    @Override
+    public long getPopulation() {
+        return live.size();
+    }
+
+    @Override
+    public void step(long generations) {
+        for (long t = 0; t < generations && live.size() > 0; t++) { // once everything is dead, nothing else can happen
+            stepOnce();
+        }
+    }
+
+    private void stepOnce() {
+        counts.clear();
+        for (int slot = 0; slot < live.capacity(); slot++) {
+            if (!live.isUsed(slot)) {
+                continue;
+            }
+            long key = live.keyAt(slot);
+            int row = CellMap.row(key);
+            int column = CellMap.column(key);
+            counts.add(key, ALIVE);
+            for (int countI = -1; countI < 2; countI++) {
+                for (int countJ = -1; countJ < 2; countJ++) {
+                    if (countI != 0 || countJ != 0) {
+                        counts.add(CellMap.key(row + countI, column + countJ), 1);
+                    }
+                }
+            }
+        }
+
+        next.clear();
+        for (int slot = 0; slot < counts.capacity(); slot++) {
+            if (!counts.isUsed(slot)) {
+                continue;
+            }
+            int value = counts.valueAt(slot);
+            int alive = value & (ALIVE - 1);
+            if (rule.isAliveNext((value & ALIVE) != 0, alive)) {
+                next.put(counts.keyAt(slot), 1);
+            }
+        }
+        CellMap old = live;
+        live = next;
+        next = old;
+    }
+}
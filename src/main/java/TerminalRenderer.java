@@ -0,0 +1,208 @@
+/**
+ * Draws the board on the terminal. The whole frame is put together in one byte buffer (which is reused for every
+ * frame) and written with a single write, instead of printing each cell separately.
+ *
+ * drawFrame() draws the whole board the way gridDraw() always has: a row of column numbers, then each row starting
+ * with its number. drawChanges() uses ANSI escape codes to move the cursor to only the cells that have changed since
+ * the last frame it drew and redraws just those, which is far less to send over a slow connection (e.g. SSH).
+ * Nothing is allocated per frame once the buffer and the grids have grown to the size of the board.
+ */
+
+package main.java;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+public class TerminalRenderer {
+    private static final byte[] ESCAPE = {27, '['}; // the start of every ANSI escape code
+    private static final byte[] CLEAR_SCREEN = "\u001b[2J\u001b[H".getBytes(StandardCharsets.US_ASCII); // clears the screen and moves to the top left
+    private static final int CELL_WIDTH = 3; // each cell is drawn as the character and 2 spaces
+    private static final int MIN_GUTTER = 3; // the least room given to the row numbers (a number up to 99 and a space)
+
+    private final OutputStream out;
+    private final byte[] onCell; // ON + "  " as bytes
+    private final byte[] offCell; // OFF + "  " as bytes
+    private final byte[] onGlyph; // just ON, for drawChanges()
+    private final byte[] offGlyph;
+    private byte[] buffer = new byte[1 << 12]; // the frame is put together in here. It grows if a frame doesn't fit
+    private int length = 0; // how much of the buffer is used
+    private BitGrid lastFrame; // the cells drawn by the last drawChanges() (null if it hasn't drawn anything yet)
+    private BitGrid thisFrame; // the cells being drawn (reused each frame)
+
+    public TerminalRenderer(OutputStream out, char on, char off) {
+        this.out = out;
+        onGlyph = String.valueOf(on).getBytes(StandardCharsets.UTF_8);
+        offGlyph = String.valueOf(off).getBytes(StandardCharsets.UTF_8);
+        onCell = (on + "  ").getBytes(StandardCharsets.UTF_8);
+        offCell = (off + "  ").getBytes(StandardCharsets.UTF_8);
+    }
+
+    // draws the whole board, followed by a blank line
+    public void drawFrame(Simulation simulation) {
+        length = 0;
+        putFrame(simulation);
+        put((byte) '\n'); // leaves a gap between the grid and the instructions
+        flush();
+    }
+
+    /* Redraws only the cells that are different from the last frame this method drew. The first time (or if the board
+     * size changes, or after forgetLastFrame()), the screen is cleared and the whole board is drawn at the top of it.
+     * The cursor is left on the line under the board.
+     */
+    public void drawChanges(Simulation simulation) {
+        length = 0;
+        if (lastFrame == null || lastFrame.getWidth() != simulation.getWidth() || lastFrame.getHeight() != simulation.getHeight()) {
+            lastFrame = simulation.snapshot();
+            thisFrame = new BitGrid(simulation.getWidth(), simulation.getHeight());
+            put(CLEAR_SCREEN);
+            putFrame(simulation);
+            flush();
+            return;
+        }
+        simulation.snapshotInto(thisFrame);
+        long[] now = thisFrame.getWords();
+        long[] before = lastFrame.getWords();
+        int wordsPerRow = thisFrame.getWordsPerRow();
+        int cursorRow = -1; // where the cursor is after the last cell that was drawn (-1 means not known)
+        int cursorColumn = -1;
+        int firstCellColumn = gutterWidth(thisFrame.getHeight()) + 1; // the terminal column of the first cell (after the row number), starting at 1
+        for (int row = 0; row < thisFrame.getHeight(); row++) {
+            for (int w = 0; w < wordsPerRow; w++) {
+                int i = row * wordsPerRow + w;
+                // goes through each bit that is different between the two frames
+                for (long changed = now[i] ^ before[i]; changed != 0; changed &= changed - 1) {
+                    int bit = Long.numberOfTrailingZeros(changed);
+                    int screenRow = row + 2; // +2 because the first line is the column numbers
+                    int screenColumn = firstCellColumn + (w * BitGrid.WORD_SIZE + bit) * CELL_WIDTH;
+                    if (screenRow == cursorRow) {
+                        putCursorRight(screenColumn - cursorColumn); // on the same row, moving right is shorter than moving to a position
+                    } else {
+                        putCursor(screenRow, screenColumn);
+                    }
+                    put((now[i] & (1L << bit)) != 0 ? onGlyph : offGlyph);
+                    cursorRow = screenRow;
+                    cursorColumn = screenColumn + 1;
+                }
+            }
+        }
+        putCursor(simulation.getHeight() + 2, 1);
+        BitGrid old = lastFrame; // this frame is now the last frame, and the old one is reused next time
+        lastFrame = thisFrame;
+        thisFrame = old;
+        flush();
+    }
+
+    // makes the next drawChanges() draw the whole board again (e.g. if something else has been printed over it)
+    public void forgetLastFrame() {
+        lastFrame = null;
+    }
+
+    private void putFrame(Simulation simulation) {
+        int width = simulation.getWidth();
+        int height = simulation.getHeight();
+        int gutter = gutterWidth(height);
+        //this puts the first line of numbers (the x-axis)
+        for (int k = 0; k < gutter; k++) {
+            put((byte) ' '); // these spaces need to be at the beginning to get the numbers to line up right
+        }
+        for (int i = 1; i < (width + 1); i++) { // the '1' and '+1' is because the grid starts at 0 whereas the coordinates don't
+            putNumber(i);
+        }
+        put((byte) '\n');
+        // each line starts with number and then has the right amount of characters to show the cells
+        for (int i = 0; i < height; i++) {
+            putRowNumber(i + 1, gutter); // this is so the numbers on the y-axis start at 1 not 0.
+            for (int j = 0; j < width; j++) {
+                put(simulation.getCell(i, j) ? onCell : offCell);
+            }
+            put((byte) '\n');
+        }
+    }
+
+    // the numbers with 1 digit need 2 spaces to make them line up right, and the numbers with more digits need 1 space
+    private void putNumber(int number) {
+        putDigits(number);
+        put((byte) ' ');
+        if (number <= 9) {
+            put((byte) ' ');
+        }
+    }
+
+    // the amount of characters before the first cell of each row: the longest row number and a space, and at least MIN_GUTTER
+    private static int gutterWidth(int height) {
+        return Math.max(MIN_GUTTER, countDigits(height) + 1);
+    }
+
+    // the row numbers are padded with spaces to 'gutter' characters, so every row's cells start in the same column
+    private void putRowNumber(int number, int gutter) {
+        putDigits(number);
+        for (int k = countDigits(number); k < gutter; k++) {
+            put((byte) ' ');
+        }
+    }
+
+    private static int countDigits(int number) {
+        int digits = 1;
+        for (int rest = number / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        return digits;
+    }
+
+    // moves the cursor to 'row' and 'column' (both start at 1)
+    private void putCursor(int row, int column) {
+        put(ESCAPE);
+        putDigits(row);
+        put((byte) ';');
+        putDigits(column);
+        put((byte) 'H');
+    }
+
+    // moves the cursor 'columns' to the right
+    private void putCursorRight(int columns) {
+        put(ESCAPE);
+        putDigits(columns);
+        put((byte) 'C');
+    }
+
+    // puts the digits of a number that isn't negative, without making a String
+    private void putDigits(int number) {
+        int digits = countDigits(number);
+        ensureRoom(digits);
+        for (int k = digits - 1; k >= 0; k--) {
+            buffer[length + k] = (byte) ('0' + number % 10);
+            number /= 10;
+        }
+        length += digits;
+    }
+
+    private void put(byte b) {
+        ensureRoom(1);
+        buffer[length++] = b;
+    }
+
+    private void put(byte[] bytes) {
+        ensureRoom(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void ensureRoom(int extra) {
+        if (length + extra > buffer.length) {
+            byte[] bigger = new byte[Math.max(buffer.length * 2, length + extra)];
+            System.arraycopy(buffer, 0, bigger, 0, length);
+            buffer = bigger;
+        }
+    }
+
+    // writes the whole frame at once
+    private void flush() {
+        try {
+            out.write(buffer, 0, length);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/**
+ * The same as PackedEngine, but it only works out the parts of the grid that could have changed.
+ *
+ * The grid is split into tiles that are TILE_WORDS words (64 columns each) wide and TILE_ROWS rows tall. A tile's next
+ * generation only depends on the tile and the 8 tiles around it, so if all 9 of them are the same as they were two
+ * generations ago, its next generation is the same as the one before the current one. That covers still lifes (which
+ * are the same every generation) and period 2 oscillators like blinker.gol, which are most of what a soup settles into.
+ *
+ * Four grids are kept: the current generation, the two before it, and the one before those, which is where the next
+ * generation is written. For a tile that has been the same as two generations before for the last two generations,
+ * that grid already has its next generation in it, so the tile doesn't have to be worked out or even copied.
+ * For each tile the engine remembers how many of the last two generations that was true for (its calm count), and only
+ * the tiles next to one that isn't calm yet are put on the active list for the next generation. The list is a bit set,
+ * so each generation only goes through the active tiles, and a board that has settled down costs almost nothing.
+ *
+ * The active tiles are worked out with BitGrid.stepRegion(), with the tiles next to each other in a row of tiles done
+ * together, so the busy parts of a board are stepped in long runs that VectorKernel can do several words at a time.
+ * Whether a tile is calm is found by comparing it with the generation before the current one, which stops at the
+ * first word that is different, so on a board that is busy everywhere the engine costs about the same as PackedEngine.
+ * setCell() marks the tile and the tiles around it as active. If the grid from getGrid() is changed directly,
+ * markAllChanged() has to be called. With TORUS and KLEIN edges, the tiles along an edge are next to the tiles on the
+ * other side of the grid (the other way round for the top and bottom edges of KLEIN), and those are marked too.
+ */
+
+package main.java;
+import java.util.Arrays;
+
+public class TiledEngine extends PackedEngine {
+    // 128x16 tiles. Wider or taller ones are quicker to step when they are active, but a settled soup keeps a few
+    // oscillators with periods other than 2, and the bigger the tiles, the more cells around them are worked out too
+    public static final int TILE_WORDS = 2; // the width of a tile in words
+    public static final int TILE_ROWS = 16; // the height of a tile
+
+    private static final byte CALM = 2; // the tile was the same as two generations before for the last two generations
+
+    private BitGrid previousGrid; // the generation before the current one
+    private BitGrid olderGrid; // the generation before that
+    private final int tileColumns; // the width of a tile in cells
+    private final int tilesAcross; // the amount of tiles in each row of tiles
+    private final int tilesDown; // the amount of rows of tiles
+    private final byte[] calm; // for each tile, how many of the last generations (never more than CALM) it was the same as two generations before
+    private long[] active; // a bit for each tile that has to be worked out next generation
+    private long[] nextActive; // the tiles for the generation after, worked out while stepping and then swapped
+    private int activeTiles; // the amount of tiles that were worked out in the last generation
+
+    public TiledEngine(int width, int height) {
+        this(new BitGrid(width, height));
+    }
+
+    public TiledEngine(BitGrid grid) {
+        this(grid, Rule.CONWAY);
+    }
+
+    public TiledEngine(BitGrid grid, Rule rule) {
+        this(grid, rule, Topology.DEAD);
+    }
+
+    public TiledEngine(BitGrid grid, Rule rule, Topology topology) {
+        super(grid, rule, topology);
+        previousGrid = new BitGrid(grid.getWidth(), grid.getHeight());
+        olderGrid = new BitGrid(grid.getWidth(), grid.getHeight());
+        tileColumns = TILE_WORDS * BitGrid.WORD_SIZE;
+        tilesAcross = (grid.getWordsPerRow() + TILE_WORDS - 1) / TILE_WORDS;
+        tilesDown = (grid.getHeight() + TILE_ROWS - 1) / TILE_ROWS;
+        calm = new byte[tilesAcross * tilesDown];
+        active = new long[(calm.length + 63) / 64];
+        nextActive = new long[active.length];
+        markAllChanged(); // at the start, nothing is known about the tiles
+    }
+
+    // the amount of tiles that were worked out in the last generation (the rest stayed the same or were blinking)
+    public int getActiveTiles() {
+        return activeTiles;
+    }
+
+    public int getTileCount() {
+        return calm.length;
+    }
+
+    // makes every tile get worked out for the next two generations
+    public void markAllChanged() {
+        Arrays.fill(calm, (byte) 0);
+        Arrays.fill(active, -1L);
+        active[active.length - 1] = -1L >>> (active.length * 64 - calm.length); // no bits for tiles past the last one
+    }
+
+    @Override
+    public void setCell(int row, int column, boolean alive) {
+        super.setCell(row, column, alive);
+        // the tile didn't come from the generation before it, so it isn't calm, and the tiles around it have to see the change
+        int tileRow = row / TILE_ROWS;
+        int tileColumn = column / tileColumns;
+        calm[tileRow * tilesAcross + tileColumn] = 0;
+        markNeighbourhood(active, tileRow, tileColumn, tileColumn + 1);
+    }
+
+    @Override
+    protected void stepOnce() {
+        activeTiles = 0;
+        int runStart = -1; // the first tile of the run of active tiles (in the same row of tiles) that hasn't been worked out yet
+        int runEnd = -1; // the tile after the last one in the run
+        for (int k = 0; k < active.length; k++) {
+            for (long bits = active[k]; bits != 0; bits &= bits - 1) { // goes through the active tiles in order
+                int tile = k * 64 + Long.numberOfTrailingZeros(bits);
+                if (tile != runEnd || tile % tilesAcross == 0) { // the run can't carry on from the end of one row of tiles to the next
+                    if (runStart >= 0) {
+                        stepTiles(runStart, runEnd);
+                    }
+                    runStart = tile;
+                }
+                runEnd = tile + 1;
+            }
+        }
+        if (runStart >= 0) {
+            stepTiles(runStart, runEnd);
+        }
+        long[] done = active;
+        active = nextActive;
+        nextActive = done;
+        Arrays.fill(nextActive, 0);
+    }
+
+    // works out tiles 'from' to 'to', which are next to each other in one row of tiles, and marks the tiles around any
+    // of them that isn't calm to be worked out next generation
+    private void stepTiles(int from, int to) {
+        int tileRow = from / tilesAcross;
+        int fromRow = tileRow * TILE_ROWS;
+        int toRow = Math.min(fromRow + TILE_ROWS, grid.getHeight());
+        int wordsPerRow = grid.getWordsPerRow();
+        int firstColumn = from % tilesAcross;
+        int fromWord = firstColumn * TILE_WORDS;
+        int toWord = Math.min((to - from + firstColumn) * TILE_WORDS, wordsPerRow);
+        grid.stepRegion(nextGrid, rule, topology, fromRow, toRow, fromWord, toWord);
+        int restless = -1; // the first of the tiles in a row that aren't calm, which haven't had their neighbourhood marked yet
+        for (int tile = from; tile < to; tile++) {
+            int tileFromWord = fromWord + (tile - from) * TILE_WORDS;
+            if (sameAsBefore(fromRow, toRow, tileFromWord, Math.min(tileFromWord + TILE_WORDS, toWord))) {
+                calm[tile] = calm[tile] < CALM ? (byte) (calm[tile] + 1) : CALM;
+            } else {
+                calm[tile] = 0;
+            }
+            if (calm[tile] < CALM && restless < 0) {
+                restless = tile;
+            } else if (calm[tile] == CALM && restless >= 0) {
+                markNeighbourhood(nextActive, tileRow, restless - from + firstColumn, tile - from + firstColumn);
+                restless = -1;
+            }
+        }
+        if (restless >= 0) {
+            markNeighbourhood(nextActive, tileRow, restless - from + firstColumn, to - from + firstColumn);
+        }
+        activeTiles += to - from;
+    }
+
+    /* Sets the bits of tiles 'fromColumn' to 'toColumn' (exclusive) of a row of tiles and of the tiles around them,
+     * including the ones on the other side of the grid if the edges wrap. A whole run is marked a word of bits at a
+     * time, so a busy board doesn't cost much more than stepping it.
+     */
+    private void markNeighbourhood(long[] tiles, int tileRow, int fromColumn, int toColumn) {
+        boolean wraps = topology == Topology.TORUS || topology == Topology.KLEIN;
+        for (int i = tileRow - 1; i <= tileRow + 1; i++) {
+            int row = i;
+            if (row < 0 || row >= tilesDown) {
+                if (!wraps) {
+                    continue;
+                }
+                row = (row + tilesDown) % tilesDown;
+                if (topology == Topology.KLEIN) { // the rows past the top and bottom are the other edge back to front
+                    markMirrored(tiles, row, fromColumn, toColumn);
+                    continue;
+                }
+            }
+            markColumns(tiles, row, fromColumn - 1, toColumn + 1, wraps);
+        }
+    }
+
+    // marks the tiles in 'row' that have the cells that are the neighbours of tiles 'fromColumn' to 'toColumn' in the reversed row
+    private void markMirrored(long[] tiles, int row, int fromColumn, int toColumn) {
+        int width = grid.getWidth();
+        int first = fromColumn * tileColumns - 1; // the columns next to the tiles, one past each side of them
+        int last = Math.min(toColumn * tileColumns, width);
+        int mirroredFirst = width - 1 - last; // column c is column width - 1 - c in the reversed row
+        int mirroredLast = width - 1 - first;
+        // -1 and 'width' are past the edges, so they stand for the tiles on the other side (which markColumns() wraps around to)
+        markColumns(tiles, row, mirroredFirst < 0 ? -1 : mirroredFirst / tileColumns, mirroredLast >= width ? tilesAcross + 1 : mirroredLast / tileColumns + 1, true);
+    }
+
+    // marks tiles 'fromColumn' to 'toColumn' (exclusive) of a row of tiles. The ones past the sides are only marked
+    // (on the other side) if 'wraps' is true
+    private void markColumns(long[] tiles, int row, int fromColumn, int toColumn, boolean wraps) {
+        if (fromColumn < 0) {
+            if (wraps) {
+                setBits(tiles, row * tilesAcross + tilesAcross - 1, row * tilesAcross + tilesAcross);
+            }
+            fromColumn = 0;
+        }
+        if (toColumn > tilesAcross) {
+            if (wraps) {
+                setBits(tiles, row * tilesAcross, row * tilesAcross + 1);
+            }
+            toColumn = tilesAcross;
+        }
+        setBits(tiles, row * tilesAcross + fromColumn, row * tilesAcross + toColumn);
+    }
+
+    // sets bits 'from' to 'to' (exclusive)
+    private static void setBits(long[] bits, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long firstMask = -1L << from; // only the low 6 bits of a shift count are used
+        long lastMask = -1L >>> -to;
+        if (first == last) {
+            bits[first] |= firstMask & lastMask;
+            return;
+        }
+        bits[first] |= firstMask;
+        for (int k = first + 1; k < last; k++) {
+            bits[k] = -1L;
+        }
+        bits[last] |= lastMask;
+    }
+
+    // whether the part of the next generation in rows 'fromRow' to 'toRow' and words 'fromWord' to 'toWord' is the same
+    // as the generation before the current one. It stops at the first word that isn't, which on a busy board is nearly always the first one
+    private boolean sameAsBefore(int fromRow, int toRow, int fromWord, int toWord) {
+        long[] next = nextGrid.getWords();
+        long[] before = previousGrid.getWords();
+        int wordsPerRow = grid.getWordsPerRow();
+        for (int row = fromRow; row < toRow; row++) {
+            int start = row * wordsPerRow;
+            for (int word = start + fromWord; word < start + toWord; word++) {
+                if (next[word] != before[word]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public BitGrid getPreviousGrid() {
+        return previousGrid;
+    }
+
+    // the generations move along one grid: the next one becomes the current one, and the oldest one is reused for the
+    // generation after next (which is where the tiles that aren't worked out already have the right cells)
+    @Override
+    protected void swap() {
+        BitGrid oldest = olderGrid;
+        olderGrid = previousGrid;
+        previousGrid = grid;
+        grid = nextGrid;
+        nextGrid = oldest;
+    }
+}
@@ -0,0 +1,16 @@
+/**
+ * What is past the edges of a grid. The original game (and BitGrid unless it is told otherwise) has DEAD edges.
+ *
+ * None of these are checked cell by cell. BitGrid only looks at the topology once per row: it picks which row is used
+ * as the row above the top row (and below the bottom row), and which cells are carried in past the left and right ends
+ * of each row. Every word in between is worked out exactly the same way whatever the topology is.
+ */
+
+package main.java;
+
+public enum Topology {
+    DEAD, // everything past the edges is dead
+    TORUS, // the left and right edges are joined, and so are the top and bottom (a glider that goes off one side comes back on the other)
+    KLEIN, // like TORUS, but the rows that go past the top and bottom come back on the other side reversed (left to right)
+    MIRROR // the cells past each edge are a copy of the cells on the edge, as if the edges were mirrors
+}
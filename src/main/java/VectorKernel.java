@@ -0,0 +1,148 @@
+/**
+ * The RowKernel that uses the Vector API (jdk.incubator.vector): the same bit-sliced adder as BitGrid.nextWord() and
+ * Rule.nextWord(), but each operation works on a vector of words at once. The words to the left and right of each word
+ * are read by loading the row again one word further left and right, so the neighbours come from the same vector lanes.
+ *
+ * The JIT only turns vector operations into SIMD instructions when it can inline all of them into one method. If it
+ * can't, every operation makes a new object, which is many times slower than the scalar code. That is why everything
+ * is written out in conway() and anyRule() without any helper methods, and why they store their result instead of
+ * returning it (a vector returned from a method that isn't inlined has to be an object).
+ *
+ * This class can only be loaded when the module has been added (--add-modules jdk.incubator.vector). Nothing uses it
+ * by name except RowKernel.load(), so without the module the rest of the program still runs.
+ */
+
+package main.java;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+final class VectorKernel implements RowKernel {
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED; // the widest vectors the CPU has
+
+    @Override
+    public int lanes() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public int stepWords(long[] upWords, int up, long[] midWords, int mid, long[] downWords, int down, long[] out, int from, int to, Rule rule) {
+        int lanes = SPECIES.length();
+        if (to - from < lanes) {
+            return 0;
+        }
+        // the last vector is moved back to end at 'to', so it does some of the words before it again. They come out the
+        // same, and it means a row of 16 words is done with 2 vectors of 8 instead of 1 vector and 7 words one at a time
+        boolean conway = rule.isConway();
+        int birth = rule.getBirth();
+        int differs = rule.getBirth() ^ rule.getSurvival(); // see Rule.nextWord()
+        for (int w = from; w < to; w += lanes) {
+            int at = Math.min(w, to - lanes);
+            if (conway) {
+                conway(upWords, up + at, midWords, mid + at, downWords, down + at, out);
+            } else {
+                anyRule(upWords, up + at, midWords, mid + at, downWords, down + at, out, birth, differs);
+            }
+        }
+        return to - from;
+    }
+
+    // the same as BitGrid.nextWord(), for the words at 'mid' onwards. The result goes in 'out' at 'mid'
+    private static void conway(long[] upWords, int up, long[] midWords, int mid, long[] downWords, int down, long[] out) {
+        LongVector upCur = LongVector.fromArray(SPECIES, upWords, up);
+        LongVector midCur = LongVector.fromArray(SPECIES, midWords, mid);
+        LongVector downCur = LongVector.fromArray(SPECIES, downWords, down);
+        // the same words one word to the left and right, so the cells carried into each word come from the same lane
+        LongVector upPrev = LongVector.fromArray(SPECIES, upWords, up - 1), upNxt = LongVector.fromArray(SPECIES, upWords, up + 1);
+        LongVector midPrev = LongVector.fromArray(SPECIES, midWords, mid - 1), midNxt = LongVector.fromArray(SPECIES, midWords, mid + 1);
+        LongVector downPrev = LongVector.fromArray(SPECIES, downWords, down - 1), downNxt = LongVector.fromArray(SPECIES, downWords, down + 1);
+        LongVector upWest = upCur.lanewise(VectorOperators.LSHL, 1).or(upPrev.lanewise(VectorOperators.LSHR, 63));
+        LongVector upEast = upCur.lanewise(VectorOperators.LSHR, 1).or(upNxt.lanewise(VectorOperators.LSHL, 63));
+        LongVector midWest = midCur.lanewise(VectorOperators.LSHL, 1).or(midPrev.lanewise(VectorOperators.LSHR, 63));
+        LongVector midEast = midCur.lanewise(VectorOperators.LSHR, 1).or(midNxt.lanewise(VectorOperators.LSHL, 63));
+        LongVector downWest = downCur.lanewise(VectorOperators.LSHL, 1).or(downPrev.lanewise(VectorOperators.LSHR, 63));
+        LongVector downEast = downCur.lanewise(VectorOperators.LSHR, 1).or(downNxt.lanewise(VectorOperators.LSHL, 63));
+
+        LongVector upBoth = upWest.lanewise(VectorOperators.XOR, upCur);
+        LongVector up0 = upBoth.lanewise(VectorOperators.XOR, upEast);
+        LongVector up1 = upWest.and(upCur).or(upEast.and(upBoth));
+        LongVector mid0 = midWest.lanewise(VectorOperators.XOR, midEast);
+        LongVector mid1 = midWest.and(midEast);
+        LongVector downBoth = downWest.lanewise(VectorOperators.XOR, downCur);
+        LongVector down0 = downBoth.lanewise(VectorOperators.XOR, downEast);
+        LongVector down1 = downWest.and(downCur).or(downEast.and(downBoth));
+
+        LongVector upMid0 = up0.lanewise(VectorOperators.XOR, mid0);
+        LongVector sum0 = upMid0.lanewise(VectorOperators.XOR, down0);
+        LongVector carry0 = up0.and(mid0).or(down0.and(upMid0));
+        LongVector upMid1 = up1.lanewise(VectorOperators.XOR, mid1);
+        LongVector ones1 = upMid1.lanewise(VectorOperators.XOR, down1);
+        LongVector carry1 = up1.and(mid1).or(down1.and(upMid1));
+        LongVector sum1 = ones1.lanewise(VectorOperators.XOR, carry0);
+        LongVector sum2 = carry1.lanewise(VectorOperators.XOR, ones1.and(carry0));
+
+        sum1.lanewise(VectorOperators.AND_NOT, sum2).and(sum0.or(midCur)).intoArray(out, mid);
+    }
+
+    // the same as Rule.nextWord(). Bit n of 'birth' and 'differs' is set when born[n] and differs[n] are all 1s
+    private static void anyRule(long[] upWords, int up, long[] midWords, int mid, long[] downWords, int down, long[] out, int birth, int differs) {
+        LongVector upCur = LongVector.fromArray(SPECIES, upWords, up);
+        LongVector midCur = LongVector.fromArray(SPECIES, midWords, mid);
+        LongVector downCur = LongVector.fromArray(SPECIES, downWords, down);
+        LongVector upPrev = LongVector.fromArray(SPECIES, upWords, up - 1), upNxt = LongVector.fromArray(SPECIES, upWords, up + 1);
+        LongVector midPrev = LongVector.fromArray(SPECIES, midWords, mid - 1), midNxt = LongVector.fromArray(SPECIES, midWords, mid + 1);
+        LongVector downPrev = LongVector.fromArray(SPECIES, downWords, down - 1), downNxt = LongVector.fromArray(SPECIES, downWords, down + 1);
+        LongVector upWest = upCur.lanewise(VectorOperators.LSHL, 1).or(upPrev.lanewise(VectorOperators.LSHR, 63));
+        LongVector upEast = upCur.lanewise(VectorOperators.LSHR, 1).or(upNxt.lanewise(VectorOperators.LSHL, 63));
+        LongVector midWest = midCur.lanewise(VectorOperators.LSHL, 1).or(midPrev.lanewise(VectorOperators.LSHR, 63));
+        LongVector midEast = midCur.lanewise(VectorOperators.LSHR, 1).or(midNxt.lanewise(VectorOperators.LSHL, 63));
+        LongVector downWest = downCur.lanewise(VectorOperators.LSHL, 1).or(downPrev.lanewise(VectorOperators.LSHR, 63));
+        LongVector downEast = downCur.lanewise(VectorOperators.LSHR, 1).or(downNxt.lanewise(VectorOperators.LSHL, 63));
+
+        LongVector upBoth = upWest.lanewise(VectorOperators.XOR, upCur);
+        LongVector up0 = upBoth.lanewise(VectorOperators.XOR, upEast);
+        LongVector up1 = upWest.and(upCur).or(upEast.and(upBoth));
+        LongVector mid0 = midWest.lanewise(VectorOperators.XOR, midEast);
+        LongVector mid1 = midWest.and(midEast);
+        LongVector downBoth = downWest.lanewise(VectorOperators.XOR, downCur);
+        LongVector down0 = downBoth.lanewise(VectorOperators.XOR, downEast);
+        LongVector down1 = downWest.and(downCur).or(downEast.and(downBoth));
+
+        LongVector upMid0 = up0.lanewise(VectorOperators.XOR, mid0);
+        LongVector sum0 = upMid0.lanewise(VectorOperators.XOR, down0);
+        LongVector carry0 = up0.and(mid0).or(down0.and(upMid0));
+        LongVector upMid1 = up1.lanewise(VectorOperators.XOR, mid1);
+        LongVector ones1 = upMid1.lanewise(VectorOperators.XOR, down1);
+        LongVector carry1 = up1.and(mid1).or(down1.and(upMid1));
+        LongVector sum1 = ones1.lanewise(VectorOperators.XOR, carry0);
+        LongVector carry2 = ones1.and(carry0);
+        LongVector sum2 = carry1.lanewise(VectorOperators.XOR, carry2);
+        LongVector sum3 = carry1.and(carry2);
+
+        // next[n] = born[n] ^ (midCur & differs[n]), where -(bit) is all 1s if the bit is 1
+        LongVector next0 = midCur.and(-(long) (differs & 1)).lanewise(VectorOperators.XOR, -(long) (birth & 1));
+        LongVector next1 = midCur.and(-(long) (differs >>> 1 & 1)).lanewise(VectorOperators.XOR, -(long) (birth >>> 1 & 1));
+        LongVector next2 = midCur.and(-(long) (differs >>> 2 & 1)).lanewise(VectorOperators.XOR, -(long) (birth >>> 2 & 1));
+        LongVector next3 = midCur.and(-(long) (differs >>> 3 & 1)).lanewise(VectorOperators.XOR, -(long) (birth >>> 3 & 1));
+        LongVector next4 = midCur.and(-(long) (differs >>> 4 & 1)).lanewise(VectorOperators.XOR, -(long) (birth >>> 4 & 1));
+        LongVector next5 = midCur.and(-(long) (differs >>> 5 & 1)).lanewise(VectorOperators.XOR, -(long) (birth >>> 5 & 1));
+        LongVector next6 = midCur.and(-(long) (differs >>> 6 & 1)).lanewise(VectorOperators.XOR, -(long) (birth >>> 6 & 1));
+        LongVector next7 = midCur.and(-(long) (differs >>> 7 & 1)).lanewise(VectorOperators.XOR, -(long) (birth >>> 7 & 1));
+        LongVector next8 = midCur.and(-(long) (differs >>> 8 & 1)).lanewise(VectorOperators.XOR, -(long) (birth >>> 8 & 1));
+
+        // a ^ ((a ^ b) & bit) picks b where the bit is 1 and a where it is 0, the same as Rule.nextWord()
+        LongVector pick01 = next0.lanewise(VectorOperators.XOR, next0.lanewise(VectorOperators.XOR, next1).and(sum0));
+        LongVector pick23 = next2.lanewise(VectorOperators.XOR, next2.lanewise(VectorOperators.XOR, next3).and(sum0));
+        LongVector pick45 = next4.lanewise(VectorOperators.XOR, next4.lanewise(VectorOperators.XOR, next5).and(sum0));
+        LongVector pick67 = next6.lanewise(VectorOperators.XOR, next6.lanewise(VectorOperators.XOR, next7).and(sum0));
+        LongVector pick03 = pick01.lanewise(VectorOperators.XOR, pick01.lanewise(VectorOperators.XOR, pick23).and(sum1));
+        LongVector pick47 = pick45.lanewise(VectorOperators.XOR, pick45.lanewise(VectorOperators.XOR, pick67).and(sum1));
+        LongVector pick07 = pick03.lanewise(VectorOperators.XOR, pick03.lanewise(VectorOperators.XOR, pick47).and(sum2));
+        pick07.lanewise(VectorOperators.XOR, pick07.lanewise(VectorOperators.XOR, next8).and(sum3)).intoArray(out, mid);
+    }
+
+    @Override
+    public String toString() {
+        return "vector (" + SPECIES.length() + " words at a time)";
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Checks BitGrid's stepping against the rules worked out one cell at a time: each cell's 8 neighbours are looked up
+ * (with whatever is past the edges for each topology) and counted. The widths are around the sizes of a word, so the
+ * carries between words, the narrow boards (one word a row) and the padding past the last column are all tried.
+ */
+
+package main.java;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BitGridTest {
+    private static final int[] WIDTHS = {1, 2, 3, 63, 64, 65, 127, 128, 200};
+    private static final int[] HEIGHTS = {1, 2, 3, 17};
+    private static final Rule[] RULES = {Rule.CONWAY, Rule.parse("B36/S23"), Rule.parse("B3678/S34678"), Rule.parse("B1/S012345678"), Rule.parse("B/S")};
+
+    @Test
+    void stepMatchesCellByCell() {
+        Random random = new Random(1);
+        for (Topology topology : Topology.values()) {
+            for (int width : WIDTHS) {
+                for (int height : HEIGHTS) {
+                    for (int k = 0; k < RULES.length + 3; k++) {
+                        // the rules that are always tried and a few random ones (some with B0, so the dead cells past the edges are looked at as well)
+                        Rule rule = k < RULES.length ? RULES[k] : Rule.of(random.nextInt(1 << 9), random.nextInt(1 << 9), 2);
+                        BitGrid grid = soup(random, width, height, random.nextDouble());
+                        BitGrid next = new BitGrid(width, height);
+                        grid.step(next, rule, topology);
+                        assertEquals(reference(grid, rule, topology), next, topology + " " + width + "x" + height + " " + rule);
+                    }
+                }
+            }
+        }
+    }
+
+    // a few generations in a row, so that the padding bits past the last column have to stay dead for the next step to be right
+    @Test
+    void generationsInARowMatch() {
+        Random random = new Random(2);
+        for (Topology topology : Topology.values()) {
+            for (int width : WIDTHS) {
+                BitGrid grid = soup(random, width, 40, 0.4);
+                BitGrid expected = new BitGrid(width, 40);
+                expected.copyFrom(grid);
+                BitGrid next = new BitGrid(width, 40);
+                for (int generation = 1; generation <= 30; generation++) {
+                    grid.step(next, Rule.CONWAY, topology);
+                    BitGrid old = grid;
+                    grid = next;
+                    next = old;
+                    expected = reference(expected, Rule.CONWAY, topology);
+                    assertEquals(expected, grid, topology + " " + width + " wide, generation " + generation);
+                }
+            }
+        }
+    }
+
+    // stepRegion() only writes the cells in its rectangle, and they are the same as when the whole grid is stepped
+    @Test
+    void stepRegionOnlyWritesItsRegion() {
+        Random random = new Random(3);
+        for (Topology topology : Topology.values()) {
+            for (int test = 0; test < 50; test++) {
+                int width = 1 + random.nextInt(300);
+                int height = 1 + random.nextInt(50);
+                BitGrid grid = soup(random, width, height, 0.4);
+                BitGrid before = soup(random, width, height, 0.5); // what is in 'next' before the region is stepped
+                BitGrid next = new BitGrid(width, height);
+                next.copyFrom(before);
+                int fromRow = random.nextInt(height);
+                int toRow = fromRow + 1 + random.nextInt(height - fromRow);
+                int fromWord = random.nextInt(grid.getWordsPerRow());
+                int toWord = fromWord + 1 + random.nextInt(grid.getWordsPerRow() - fromWord);
+                grid.stepRegion(next, Rule.CONWAY, topology, fromRow, toRow, fromWord, toWord);
+                BitGrid whole = reference(grid, Rule.CONWAY, topology);
+                for (int row = 0; row < height; row++) {
+                    for (int column = 0; column < width; column++) {
+                        int word = column / BitGrid.WORD_SIZE;
+                        boolean inside = row >= fromRow && row < toRow && word >= fromWord && word < toWord;
+                        assertEquals(inside ? whole.get(row, column) : before.get(row, column), next.get(row, column),
+                                topology + " " + width + "x" + height + " cell " + row + "," + column + (inside ? " inside" : " outside") + " the region");
+                    }
+                }
+            }
+        }
+    }
+
+    // the next generation worked out one cell at a time
+    private static BitGrid reference(BitGrid grid, Rule rule, Topology topology) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        BitGrid next = new BitGrid(width, height);
+        for (int row = 0; row < height; row++) {
+            for (int column = 0; column < width; column++) {
+                int neighbours = 0;
+                for (int i = -1; i <= 1; i++) {
+                    for (int j = -1; j <= 1; j++) {
+                        if ((i != 0 || j != 0) && isAlive(grid, row + i, column + j, topology)) {
+                            neighbours++;
+                        }
+                    }
+                }
+                next.set(row, column, rule.isAliveNext(grid.get(row, column), neighbours));
+            }
+        }
+        return next;
+    }
+
+    // whether the cell at 'row', 'column' is alive, where either of them can be one past the edge
+    private static boolean isAlive(BitGrid grid, int row, int column, Topology topology) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        boolean rowOutside = row < 0 || row >= height;
+        boolean columnOutside = column < 0 || column >= width;
+        switch (topology) {
+            case DEAD:
+                return !rowOutside && !columnOutside && grid.get(row, column);
+            case MIRROR:
+                return grid.get(Math.min(Math.max(row, 0), height - 1), Math.min(Math.max(column, 0), width - 1));
+            case KLEIN:
+                column = (column + width) % width;
+                if (rowOutside) {
+                    column = width - 1 - column; // the row from the other side is back to front
+                }
+                return grid.get((row + height) % height, column);
+            default: // TORUS
+                return grid.get((row + height) % height, (column + width) % width);
+        }
+    }
+
+    private static BitGrid soup(Random random, int width, int height, double density) {
+        BitGrid grid = new BitGrid(width, height);
+        for (int row = 0; row < height; row++) {
+            for (int column = 0; column < width; column++) {
+                grid.set(row, column, random.nextDouble() < density);
+            }
+        }
+        return grid;
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Checks that Checkpointer.run() leaves a checkpoint of the last generation, and that resume() carries on from the
+ * checkpoint before the newest one when the newest one was cut off part way through being written.
+ */
+
+package main.java;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CheckpointerTest {
+    @TempDir
+    Path folder;
+
+    @Test
+    void resumesPastATruncatedCheckpoint() throws IOException {
+        Simulation simulation = new Simulation(soup(new Random(1), 100, 80), Rule.CONWAY, Topology.TORUS);
+        try (Checkpointer checkpointer = new Checkpointer(folder, 10, 0)) {
+            checkpointer.run(simulation, 35);
+            checkpointer.close(); // waits for the writes, so the error (if there is one) has been set
+            assertNull(checkpointer.getLastError());
+        }
+        List<Path> checkpoints = Checkpointer.list(folder);
+        assertTrue(checkpoints.size() >= 2, "Only " + checkpoints.size() + " checkpoints were kept");
+        assertEquals(35, Checkpointer.resume(folder).getGeneration()); // 35 isn't a multiple of 10, but the last generation is still saved
+
+        try (FileChannel channel = FileChannel.open(checkpoints.get(0), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() / 2); // as if the computer had been turned off while it was being written
+        }
+        Simulation resumed = Checkpointer.resume(folder);
+        assertNotNull(resumed);
+        assertTrue(resumed.getGeneration() < 35 && resumed.getGeneration() % 10 == 0, "Resumed from generation " + resumed.getGeneration());
+
+        // the checkpoint it resumed from has the same cells as the run had at that generation
+        Simulation expected = new Simulation(soup(new Random(1), 100, 80), Rule.CONWAY, Topology.TORUS);
+        expected.step(resumed.getGeneration());
+        RleFormatTest.assertSameBoard(expected, resumed);
+        assertEquals(Topology.TORUS, resumed.getTopology());
+    }
+
+    private static BitGrid soup(Random random, int width, int height) {
+        BitGrid grid = new BitGrid(width, height);
+        for (int row = 0; row < height; row++) {
+            for (int column = 0; column < width; column++) {
+                grid.set(row, column, random.nextBoolean());
+            }
+        }
+        return grid;
+    }
+}
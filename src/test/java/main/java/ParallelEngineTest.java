@@ -0,0 +1,75 @@
+/**
+ * Checks that ParallelEngine gives exactly the same generations as PackedEngine, for every topology, with pools of
+ * different sizes and boards of different heights, so that there are different amounts of bands (and bands that don't
+ * all have the same amount of rows). The top and bottom bands are the ones that read rows from the other edge.
+ */
+
+package main.java;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParallelEngineTest {
+    private static final int[] THREADS = {1, 2, 3, 4, 7};
+    private static final int[][] SIZES = {{65, 10}, {100, 17}, {200, 33}, {70, 100}, {129, 257}, {64, 1000}};
+
+    @Test
+    void matchesPackedEngine() {
+        Random random = new Random(1);
+        for (int threads : THREADS) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                for (Topology topology : Topology.values()) {
+                    for (int[] size : SIZES) {
+                        for (String rule : new String[] {"B3/S23", "B36/S23"}) {
+                            BitGrid start = soup(random, size[0], size[1]);
+                            PackedEngine packed = new PackedEngine(copy(start), Rule.parse(rule), topology);
+                            ParallelEngine parallel = new ParallelEngine(copy(start), Rule.parse(rule), topology, pool);
+                            for (int generation = 1; generation <= 20; generation++) {
+                                packed.step(1);
+                                parallel.step(1);
+                                assertEquals(packed.getGrid(), parallel.getGrid(), threads + " threads, " + topology + " " + size[0] + "x" + size[1] + " " + rule + " generation " + generation);
+                            }
+                        }
+                    }
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    // step(n) with more than one generation, and the engine that makes (and closes) its own pool
+    @Test
+    void manyGenerationsAtOnce() {
+        BitGrid start = soup(new Random(2), 300, 500);
+        PackedEngine packed = new PackedEngine(copy(start));
+        try (ParallelEngine parallel = new ParallelEngine(start.getWidth(), start.getHeight(), 4)) {
+            for (int row = 0; row < start.getHeight(); row++) {
+                for (int column = 0; column < start.getWidth(); column++) {
+                    parallel.setCell(row, column, start.get(row, column));
+                }
+            }
+            packed.step(100);
+            parallel.step(100);
+            assertEquals(packed.getGrid(), parallel.getGrid());
+        }
+    }
+
+    private static BitGrid soup(Random random, int width, int height) {
+        BitGrid grid = new BitGrid(width, height);
+        for (int row = 0; row < height; row++) {
+            for (int column = 0; column < width; column++) {
+                grid.set(row, column, random.nextBoolean());
+            }
+        }
+        return grid;
+    }
+
+    private static BitGrid copy(BitGrid grid) {
+        BitGrid copy = new BitGrid(grid.getWidth(), grid.getHeight());
+        copy.copyFrom(grid);
+        return copy;
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Checks that RleFormat reads back what it writes, and that files with counts or positions that don't fit the header
+ * are rejected with an IOException (not an exception from the board, or a cell in the wrong place).
+ */
+
+package main.java;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RleFormatTest {
+    @TempDir
+    Path folder;
+
+    private Path writeFile(String text) throws IOException {
+        Path file = folder.resolve("pattern.rle");
+        Files.writeString(file, text, StandardCharsets.US_ASCII);
+        return file;
+    }
+
+    @Test
+    void readsAGlider() throws IOException {
+        Simulation simulation = RleFormat.load(writeFile("#C a glider\nx = 3, y = 3, rule = B3/S23\nbob$2bo$3o!\n"));
+        assertEquals(3, simulation.getWidth());
+        assertEquals(5, simulation.getPopulation());
+        assertEquals(1, simulation.getState(0, 1));
+        assertEquals(1, simulation.getState(1, 2));
+        assertEquals(0, simulation.getState(1, 0));
+    }
+
+    @Test
+    void rejectsCountsThatDontFit() throws IOException {
+        String[] patterns = {
+                "2147483647b2147483647bo!", // the columns would wrap around to -2
+                "2147483647$2147483647$o!", // the rows would wrap around to -2
+                "4294967297o!", // the count would wrap around to 1 as an int
+                "99999999999999999999999o!", // the count would wrap around as a long
+                "11b!", // dead cells past the right edge
+                "11$o!", // rows past the bottom
+                "10$o!", // a live cell in the row just past the bottom
+                "9bo2o!", // live cells past the right edge
+        };
+        for (String pattern : patterns) {
+            Path file = writeFile("x = 10, y = 10\n" + pattern + "\n");
+            assertThrows(IOException.class, () -> RleFormat.load(file), pattern);
+        }
+    }
+
+    @Test
+    void allowsRunsUpToTheEdges() throws IOException {
+        Simulation simulation = RleFormat.load(writeFile("x = 10, y = 10\n9bo$10b8$10o$!\n"));
+        assertEquals(11, simulation.getPopulation());
+        assertEquals(1, simulation.getState(0, 9));
+        assertEquals(1, simulation.getState(9, 0));
+    }
+
+    @Test
+    void roundTripsConway() throws IOException {
+        Random random = new Random(1);
+        Simulation simulation = new Simulation(37, 23);
+        for (int i = 0; i < 300; i++) {
+            simulation.setState(random.nextInt(23), random.nextInt(37), 1);
+        }
+        Path file = folder.resolve("board.rle");
+        RleFormat.write(file, simulation);
+        assertSameBoard(simulation, RleFormat.load(file));
+    }
+
+    @Test
+    void roundTripsGenerations() throws IOException {
+        Rule rule = Rule.parse("B2/S/5");
+        Random random = new Random(2);
+        Simulation simulation = new Simulation(20, 15, rule);
+        for (int i = 0; i < 150; i++) {
+            simulation.setState(random.nextInt(15), random.nextInt(20), random.nextInt(rule.getStates()));
+        }
+        Path file = folder.resolve("board.rle");
+        RleFormat.write(file, simulation);
+        Simulation loaded = RleFormat.load(file);
+        assertEquals(rule.toString(), loaded.getRule().toString());
+        assertSameBoard(simulation, loaded);
+    }
+
+    static void assertSameBoard(Simulation expected, Simulation actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int row = 0; row < expected.getHeight(); row++) {
+            for (int column = 0; column < expected.getWidth(); column++) {
+                assertEquals(expected.getState(row, column), actual.getState(row, column), "Cell (" + row + ", " + column + ")");
+            }
+        }
+    }
+}
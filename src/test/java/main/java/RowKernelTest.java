@@ -0,0 +1,51 @@
+/**
+ * Checks that VectorKernel gives exactly the same words as BitGrid.nextWord() (for Conway's rule) and Rule.nextWord()
+ * (for any other rule), for random rows and rules. BitGrid uses the kernel whenever it can be loaded, so if this
+ * fails, every board stepped with the Vector API is wrong.
+ */
+
+package main.java;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RowKernelTest {
+    private static final Rule[] RULES = {Rule.CONWAY, Rule.parse("B36/S23"), Rule.parse("B3678/S34678"), Rule.parse("B012345678/S012345678"), Rule.parse("B/S")};
+
+    @Test
+    void vectorKernelMatchesScalar() {
+        RowKernel kernel = new VectorKernel();
+        SplittableRandom random = new SplittableRandom(1);
+        int length = kernel.lanes() * 4 + 3;
+        long[] rows = new long[length * 3]; // the row above, the row itself and the row below, one after another
+        long[] out = new long[length * 3];
+        for (int test = 0; test < 1000; test++) {
+            for (int i = 0; i < rows.length; i++) {
+                // some rows are mostly alive or mostly dead so that counts near 0 and 8 come up as well
+                long bits = random.nextLong();
+                rows[i] = test % 4 == 1 ? bits | random.nextLong() : test % 4 == 2 ? bits & random.nextLong() : bits;
+            }
+            Rule rule = test < RULES.length ? RULES[test] : Rule.of(random.nextInt(1 << 9), random.nextInt(1 << 9), 2);
+            int from = 1 + random.nextInt(kernel.lanes());
+            int to = length - 1 - random.nextInt(2);
+            Arrays.fill(out, test);
+            int done = kernel.stepWords(rows, 0, rows, length, rows, length * 2, out, from, to, rule);
+            assertTrue(done >= 0 && done <= to - from, "Asked for words " + from + " to " + to + " but " + done + " were done");
+            for (int w = 0; w < length; w++) {
+                int up = w, mid = length + w, down = length * 2 + w;
+                if (w < from || w >= from + done) { // the words it wasn't asked for (or didn't do) have to be left alone
+                    assertEquals(test, out[up], "Word " + w + " of the row above was written to");
+                    assertEquals(test, out[mid], "Word " + w + " was written to but not done");
+                    assertEquals(test, out[down], "Word " + w + " of the row below was written to");
+                    continue;
+                }
+                long expected = rule.isConway()
+                        ? BitGrid.nextWord(rows[up - 1], rows[up], rows[up + 1], rows[mid - 1], rows[mid], rows[mid + 1], rows[down - 1], rows[down], rows[down + 1])
+                        : rule.nextWord(rows[up - 1], rows[up], rows[up + 1], rows[mid - 1], rows[mid], rows[mid + 1], rows[down - 1], rows[down], rows[down + 1]);
+                assertEquals(expected, out[mid], "Word " + w + " is wrong for " + rule);
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ * Checks that a Simulation can't be made with a size that is different from its engine's grid, which used to give an
+ * ArrayIndexOutOfBoundsException the first time a cell past the grid was looked at.
+ */
+
+package main.java;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SimulationTest {
+    @Test
+    void engineGridHasToBeTheBoardSize() {
+        assertThrows(IllegalArgumentException.class, () -> new Simulation(new PackedEngine(10, 10), 20, 20));
+        assertThrows(IllegalArgumentException.class, () -> new Simulation(new PackedEngine(10, 10), 10, 9));
+        assertThrows(IllegalArgumentException.class, () -> new Simulation(new TiledEngine(64, 32), 32, 64));
+
+        Simulation simulation = new Simulation(new PackedEngine(10, 20), 10, 20);
+        assertEquals(10, simulation.getWidth());
+        assertEquals(20, simulation.getHeight());
+        // engines without a grid can be given any size
+        assertEquals(100, new Simulation(new SparseEngine(), 100, 50).getWidth());
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Checks that SnapshotFormat reads back what it writes (compressed or not, with any topology and Generations rules),
+ * and that damaged files are rejected.
+ */
+
+package main.java;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SnapshotFormatTest {
+    @TempDir
+    Path folder;
+
+    @Test
+    void roundTripsBoards() throws IOException {
+        Random random = new Random(1);
+        Path file = folder.resolve("board.golb");
+        for (int width : new int[] {1, 63, 64, 65, 200}) {
+            for (boolean compressed : new boolean[] {true, false}) {
+                BitGrid grid = new BitGrid(width, 17);
+                for (int i = 0; i < width * 5; i++) {
+                    grid.set(random.nextInt(17), random.nextInt(width), true);
+                }
+                SnapshotFormat.write(file, grid, 1234, Rule.parse("B36/S23"), Topology.KLEIN, null, compressed);
+                Simulation loaded = SnapshotFormat.read(file);
+                assertEquals(grid, loaded.snapshot());
+                assertEquals(1234, loaded.getGeneration());
+                assertEquals("B36/S23", loaded.getRule().toString());
+                assertEquals(Topology.KLEIN, loaded.getTopology());
+            }
+        }
+    }
+
+    @Test
+    void roundTripsGenerations() throws IOException {
+        Rule rule = Rule.parse("B2/S/30"); // more states than an RLE file can hold
+        Random random = new Random(2);
+        Simulation simulation = new Simulation(70, 30, rule);
+        for (int i = 0; i < 1000; i++) {
+            simulation.setState(random.nextInt(30), random.nextInt(70), random.nextInt(rule.getStates()));
+        }
+        simulation.setGeneration(7);
+        Path file = folder.resolve("board.golb");
+        SnapshotFormat.write(file, simulation);
+        Simulation loaded = SnapshotFormat.read(file);
+        assertEquals(7, loaded.getGeneration());
+        RleFormatTest.assertSameBoard(simulation, loaded);
+    }
+
+    @Test
+    void rejectsDamagedFiles() throws IOException {
+        Path file = folder.resolve("board.golb");
+        BitGrid grid = new BitGrid(70, 10);
+        grid.set(3, 4, true);
+        SnapshotFormat.write(file, grid, 0, false);
+        byte[] bytes = Files.readAllBytes(file);
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 9)); // cut short
+        assertThrows(IOException.class, () -> SnapshotFormat.read(file));
+        byte[] flipped = bytes.clone();
+        flipped[flipped.length - 20] ^= 1; // a cell changed after the checksum was worked out
+        Files.write(file, flipped);
+        assertThrows(IOException.class, () -> SnapshotFormat.read(file));
+
+        grid.getWords()[1] |= 1L << 63; // a cell past the right edge of the first row
+        SnapshotFormat.write(file, grid, 0, false);
+        assertThrows(IOException.class, () -> SnapshotFormat.read(file));
+    }
+}
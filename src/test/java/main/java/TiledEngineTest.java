@@ -0,0 +1,118 @@
+/**
+ * Checks that TiledEngine gives exactly the same generations as PackedEngine, for every topology, for boards that
+ * don't fill their last tiles, and when cells are changed between generations. It also checks that a board that has
+ * settled down doesn't work out any tiles.
+ */
+
+package main.java;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TiledEngineTest {
+    private static final int[][] SIZES = {{1, 1}, {5, 3}, {64, 64}, {100, 70}, {257, 33}, {300, 100}, {700, 65}};
+
+    @Test
+    void matchesPackedEngine() {
+        Random random = new Random(1);
+        for (Topology topology : Topology.values()) {
+            for (int[] size : SIZES) {
+                for (String rule : new String[] {"B3/S23", "B36/S23"}) {
+                    BitGrid start = soup(random, size[0], size[1], 0.3);
+                    PackedEngine packed = new PackedEngine(copy(start), Rule.parse(rule), topology);
+                    TiledEngine tiled = new TiledEngine(copy(start), Rule.parse(rule), topology);
+                    for (int generation = 1; generation <= 300; generation++) {
+                        packed.step(1);
+                        tiled.step(1);
+                        assertEquals(packed.getGrid(), tiled.getGrid(), topology + " " + size[0] + "x" + size[1] + " " + rule + " generation " + generation);
+                        if (generation % 50 == 0) { // cells changed in the middle of a run (the way seek() and the editor change them)
+                            for (int k = 0; k < 5; k++) {
+                                int row = random.nextInt(size[1]);
+                                int column = random.nextInt(size[0]);
+                                boolean alive = random.nextBoolean();
+                                packed.setCell(row, column, alive);
+                                tiled.setCell(row, column, alive);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // on an empty board only the tiles near the gliders are active, so the tiles they wrap around to have to be marked
+    @Test
+    void glidersCrossTheEdges() {
+        int[][] glider = {{0, 1}, {1, 2}, {2, 0}, {2, 1}, {2, 2}}; // heading down and right
+        Random random = new Random(2);
+        for (Topology topology : Topology.values()) {
+            BitGrid grid = new BitGrid(2000, 300);
+            for (int k = 0; k < 12; k++) {
+                // the first ones start near a corner, heading out past both edges, so they come back in on the other
+                // sides. The rest start anywhere (with KLEIN, they come back in somewhere else along the other edge)
+                boolean up = k % 2 == 0;
+                boolean back = k % 4 < 2;
+                int top = k >= 8 ? random.nextInt(grid.getHeight() - 3) : up ? random.nextInt(40) : grid.getHeight() - 43 + random.nextInt(40);
+                int left = k >= 8 ? random.nextInt(grid.getWidth() - 3) : back ? random.nextInt(60) : grid.getWidth() - 63 + random.nextInt(60);
+                for (int[] cell : glider) { // flipped so that the gliders head in all four directions
+                    grid.set(top + (up ? 2 - cell[0] : cell[0]), left + (back ? 2 - cell[1] : cell[1]), true);
+                }
+            }
+            PackedEngine packed = new PackedEngine(copy(grid), Rule.CONWAY, topology);
+            TiledEngine tiled = new TiledEngine(copy(grid), Rule.CONWAY, topology);
+            for (int generation = 1; generation <= 1200; generation++) {
+                packed.step(1);
+                tiled.step(1);
+                assertEquals(packed.getGrid(), tiled.getGrid(), topology + " generation " + generation);
+            }
+        }
+    }
+
+    @Test
+    void settledBoardsDoNothing() {
+        BitGrid grid = new BitGrid(512, 512);
+        for (int top = 10; top < 500; top += 40) {
+            for (int left = 10; left < 500; left += 40) {
+                grid.set(top, left, true); // a blinker
+                grid.set(top, left + 1, true);
+                grid.set(top, left + 2, true);
+                grid.set(top + 20, left, true); // a block
+                grid.set(top + 20, left + 1, true);
+                grid.set(top + 21, left, true);
+                grid.set(top + 21, left + 1, true);
+            }
+        }
+        TiledEngine tiled = new TiledEngine(copy(grid));
+        PackedEngine packed = new PackedEngine(grid);
+        tiled.step(4); // every tile is worked out until it has been the same as two generations before, twice
+        packed.step(4);
+        assertEquals(0, tiled.getActiveTiles());
+        tiled.step(10);
+        packed.step(10);
+        assertEquals(packed.getGrid(), tiled.getGrid());
+
+        tiled.setCell(300, 300, true); // one cell wakes its tile and the tiles around it up again
+        packed.setCell(300, 300, true);
+        tiled.step(1);
+        packed.step(1);
+        assertEquals(packed.getGrid(), tiled.getGrid());
+        assertTrue(tiled.getActiveTiles() > 0 && tiled.getActiveTiles() <= 9);
+    }
+
+    private static BitGrid soup(Random random, int width, int height, double density) {
+        BitGrid grid = new BitGrid(width, height);
+        for (int row = 0; row < height; row++) {
+            for (int column = 0; column < width; column++) {
+                grid.set(row, column, random.nextDouble() < density);
+            }
+        }
+        return grid;
+    }
+
+    private static BitGrid copy(BitGrid grid) {
+        BitGrid copy = new BitGrid(grid.getWidth(), grid.getHeight());
+        copy.copyFrom(grid);
+        return copy;
+    }
+}